@@ -0,0 +1,107 @@
+package demo.transfer.domain;
+
+import akka.javasdk.JsonSupport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encoding and decoding the events of one completed two-party mediator transfer, in the format
+ * persisted before {@link TransferEventMigration} version 1 ({@code legacy}) and the current one
+ * ({@code compact}). The bytes written per transfer are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransferEventEncodingBenchmark {
+
+  /** The events as they were persisted before version 1. */
+  private interface Legacy {
+    record Created(String transferId, List<Participant> participants) {}
+
+    record ParticipantJoined(String transferId, String participantId) {}
+
+    record ParticipantExecuted(String transferId, String participantId) {}
+
+    record Initiated(String transferId, Set<String> participantsIds) {}
+
+    record Completed(String transferId, Set<String> participantsIds) {}
+  }
+
+  private record Stored(Class<?> type, byte[] json) {}
+
+  @Param({"legacy", "compact"})
+  public String format;
+
+  private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+
+  private List<Object> events;
+  private List<Stored> stored;
+
+  @Setup
+  public void setup() throws IOException {
+    var transferId = "m:9f1c2a64-1b7e-4d8e-a7c9-3f0d2b5e6a71";
+    var from = "wallet-3f0d2b5e";
+    var to = "wallet-7c91ab04";
+    var ids = Set.of(from, to);
+    events =
+        format.equals("legacy")
+            ? List.of(
+                new Legacy.Created(transferId, List.of(new Participant(from), new Participant(to))),
+                new Legacy.ParticipantJoined(transferId, from),
+                new Legacy.ParticipantJoined(transferId, to),
+                new Legacy.Initiated(transferId, ids),
+                new Legacy.ParticipantExecuted(transferId, from),
+                new Legacy.ParticipantExecuted(transferId, to),
+                new Legacy.Completed(transferId, ids))
+            : List.of(
+                new TransferEvent.Created(List.of(from, to)),
+                new TransferEvent.ParticipantJoined(from),
+                new TransferEvent.ParticipantJoined(to),
+                new TransferEvent.Initiated(ids),
+                new TransferEvent.ParticipantExecuted(from),
+                new TransferEvent.ParticipantExecuted(to),
+                new TransferEvent.Completed(ids));
+
+    stored = new ArrayList<>();
+    var bytes = 0;
+    for (var event : events) {
+      var json = mapper.writeValueAsBytes(event);
+      stored.add(new Stored(event.getClass(), json));
+      bytes += json.length;
+    }
+    System.out.printf("%n%s: %d bytes of JSON per transfer%n", format, bytes);
+  }
+
+  @Benchmark
+  public void encode(Blackhole blackhole) throws IOException {
+    for (var event : events) {
+      blackhole.consume(mapper.writeValueAsBytes(event));
+    }
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) throws IOException {
+    for (var event : stored) {
+      blackhole.consume(mapper.readValue(event.json(), event.type()));
+    }
+  }
+}
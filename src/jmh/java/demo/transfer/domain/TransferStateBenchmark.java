@@ -0,0 +1,76 @@
+package demo.transfer.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Every participant of a transfer joining, then executing, as {@code TransferMediatorEntity}
+ * handles it: each command checks whether the participant is the last one before the event is
+ * applied. With the joined and executed counters of the state, that check no longer walks the other
+ * participants.
+ *
+ * <p>A whole pass still grows faster than the number of participants: every transition copies the
+ * bit set it changes, so a pass over {@code n} participants copies {@code n} sets of {@code n / 64}
+ * words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransferStateBenchmark {
+
+  @Param({"2", "10", "100", "1000", "10000"})
+  public int participants;
+
+  private List<String> participantIds;
+  private TransferState created;
+  private TransferState allJoined;
+
+  @Setup
+  public void setup() {
+    participantIds = new ArrayList<>(participants);
+    for (int i = 0; i < participants; i++) {
+      participantIds.add("wallet-" + i);
+    }
+    created = TransferState.created("transfer", participantIds);
+    allJoined = created;
+    for (var id : participantIds) {
+      allJoined = allJoined.participantJoined(id);
+    }
+  }
+
+  @Benchmark
+  public TransferState joinAll(Blackhole blackhole) {
+    var state = created;
+    for (var id : participantIds) {
+      blackhole.consume(state.isLastToJoin(id));
+      state = state.participantJoined(id);
+    }
+    return state;
+  }
+
+  @Benchmark
+  public TransferState executeAll(Blackhole blackhole) {
+    var state = allJoined;
+    for (var id : participantIds) {
+      blackhole.consume(state.isLastToExecute(id));
+      state = state.participantExecuted(id);
+    }
+    return state;
+  }
+}
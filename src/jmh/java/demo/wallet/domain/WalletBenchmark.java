@@ -0,0 +1,72 @@
+package demo.wallet.domain;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single wallet transitions on a wallet that already holds {@code pendingTransactions} pending
+ * transactions and {@value #EXECUTED} executed ones awaiting completion, so the cost of growing
+ * state shows up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WalletBenchmark {
+
+  static final int EXECUTED = 1000;
+
+  @Param({"0", "100", "1000"})
+  public int pendingTransactions;
+
+  private Wallet wallet;
+  private Wallet withPendingDeposit;
+  private Wallet withExecutedDeposit;
+
+  @Setup
+  public void setup() {
+    var state = new Wallet(1_000_000);
+    for (int i = 0; i < EXECUTED; i++) {
+      var txId = "executed-" + i;
+      state = state.addPendingDeposit(1, txId).executeDeposit(1, txId);
+    }
+    for (int i = 0; i < pendingTransactions; i++) {
+      state = state.addPendingWithdraw(1, "pending-" + i);
+    }
+    wallet = state;
+    withPendingDeposit = wallet.addPendingDeposit(10, "deposit");
+    withExecutedDeposit = withPendingDeposit.executeDeposit(10, "deposit");
+  }
+
+  @Benchmark
+  public Wallet addPendingWithdraw() {
+    return wallet.addPendingWithdraw(10, "withdraw");
+  }
+
+  @Benchmark
+  public Wallet executeDeposit() {
+    return withPendingDeposit.executeDeposit(10, "deposit");
+  }
+
+  @Benchmark
+  public Wallet completeTransaction() {
+    return withExecutedDeposit.completeTransaction("deposit");
+  }
+
+  @Benchmark
+  public long reservedFunds() {
+    return wallet.reservedFunds();
+  }
+}
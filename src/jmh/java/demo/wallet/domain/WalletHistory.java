@@ -0,0 +1,40 @@
+package demo.wallet.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event history of a long-lived wallet, interleaving deposits and withdrawals. Most transactions
+ * are initiated, executed and completed; one in four is never completed, so executed ids pile up as
+ * they do for mediator transfers waiting on their counterpart.
+ */
+final class WalletHistory {
+
+  private WalletHistory() {}
+
+  /** The history after {@code WalletCreated}, which the entity applies itself. */
+  static List<WalletEvent> generate(int events) {
+    var history = new ArrayList<WalletEvent>(events + 3);
+    for (int i = 0; history.size() < events; i++) {
+      var txId = "tx-" + i;
+      if (i % 2 == 0) {
+        history.add(new WalletEvent.DepositInitiated(10, txId));
+        history.add(new WalletEvent.Deposited(10, txId));
+      } else {
+        history.add(new WalletEvent.WithdrawInitiated(5, txId));
+        history.add(new WalletEvent.Withdrawn(5, txId));
+      }
+      if (i % 4 != 3) {
+        history.add(new WalletEvent.TransactionCompleted(txId));
+      }
+    }
+    return List.copyOf(history.subList(0, events));
+  }
+
+  static Wallet replay(Wallet wallet, List<WalletEvent> events) {
+    for (var event : events) {
+      wallet = wallet.applyEvent(event);
+    }
+    return wallet;
+  }
+}
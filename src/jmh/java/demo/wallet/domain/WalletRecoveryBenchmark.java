@@ -0,0 +1,70 @@
+package demo.wallet.domain;
+
+import akka.javasdk.JsonSupport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to recover a wallet from its stored JSON, against the length of its history: all events when
+ * {@code snapshotEvery} is 0, otherwise the latest snapshot plus the events persisted after it, as
+ * with {@code akka.javasdk.event-sourced-entity.snapshot-every}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WalletRecoveryBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int events;
+
+  @Param({"0", "100"})
+  public int snapshotEvery;
+
+  private record StoredEvent(Class<? extends WalletEvent> type, byte[] json) {}
+
+  private final ObjectMapper mapper = JsonSupport.getObjectMapper();
+
+  private byte[] snapshot;
+  private List<StoredEvent> eventsAfterSnapshot;
+
+  @Setup
+  public void setup() throws IOException {
+    var history = WalletHistory.generate(events);
+    // WalletCreated is the first event, so snapshots are taken after every snapshotEvery - 1 others
+    var replayed = snapshotEvery == 0 ? 0 : ((events + 1) / snapshotEvery) * snapshotEvery - 1;
+    if (replayed > 0) {
+      var wallet = WalletHistory.replay(new Wallet(0), history.subList(0, replayed));
+      snapshot = mapper.writeValueAsBytes(wallet);
+    }
+    eventsAfterSnapshot = new ArrayList<>();
+    for (var event : history.subList(Math.max(replayed, 0), events)) {
+      eventsAfterSnapshot.add(new StoredEvent(event.getClass(), mapper.writeValueAsBytes(event)));
+    }
+  }
+
+  @Benchmark
+  public Wallet recover() throws IOException {
+    var wallet = snapshot == null ? new Wallet(0) : mapper.readValue(snapshot, Wallet.class);
+    for (var stored : eventsAfterSnapshot) {
+      wallet = wallet.applyEvent(mapper.readValue(stored.json(), stored.type()));
+    }
+    return wallet;
+  }
+}
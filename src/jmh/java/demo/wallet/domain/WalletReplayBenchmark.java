@@ -0,0 +1,44 @@
+package demo.wallet.domain;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recovers a wallet from its full event history, the way {@code WalletEntity.applyEvent} does when
+ * the entity is loaded without a snapshot. See {@link WalletHistory} for the events replayed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WalletReplayBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  public int events;
+
+  private List<WalletEvent> history;
+
+  @Setup
+  public void setup() {
+    history = WalletHistory.generate(events);
+  }
+
+  @Benchmark
+  public Wallet replay() {
+    // WalletCreated, applied by the entity itself
+    return WalletHistory.replay(new Wallet(0), history);
+  }
+}
@@ -0,0 +1,62 @@
+package demo;
+
+import akka.javasdk.DependencyProvider;
+import akka.javasdk.ServiceSetup;
+import akka.javasdk.annotations.Setup;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import demo.transfer.application.TransferExpiryMode;
+import demo.transfer.application.TransferExpirySweeper;
+import demo.transfer.application.TransferTimeouts;
+import demo.wallet.application.DepositBatcher;
+import demo.wallet.application.WalletCache;
+import demo.wallet.application.WalletShards;
+
+@Setup
+public class Bootstrap implements ServiceSetup {
+
+  private final Config config;
+  private final ComponentClient componentClient;
+  private final TimerScheduler timerScheduler;
+
+  public Bootstrap(Config config, ComponentClient componentClient, TimerScheduler timerScheduler) {
+    this.config = config;
+    this.componentClient = componentClient;
+    this.timerScheduler = timerScheduler;
+  }
+
+  @Override
+  public void onStartup() {
+    if (TransferExpiryMode.fromConfig(config) == TransferExpiryMode.SWEEPER) {
+      // every instance schedules it, but there is only ever one timer of that name
+      TransferExpirySweeper.scheduleNext(
+          componentClient,
+          timerScheduler,
+          config.getDuration("demo.transfer.expiry.sweeper.interval"));
+    }
+  }
+
+  @Override
+  public DependencyProvider createDependencyProvider() {
+    var walletCache = WalletCache.fromConfig(config);
+    var depositBatcher = DepositBatcher.fromConfig(config, componentClient);
+    var walletShards = WalletShards.fromConfig(config, componentClient);
+    var transferTimeouts = TransferTimeouts.fromConfig(config);
+    return new DependencyProvider() {
+      @Override
+      public <T> T getDependency(Class<T> clazz) {
+        if (clazz == WalletCache.class) {
+          return clazz.cast(walletCache);
+        } else if (clazz == DepositBatcher.class) {
+          return clazz.cast(depositBatcher);
+        } else if (clazz == WalletShards.class) {
+          return clazz.cast(walletShards);
+        } else if (clazz == TransferTimeouts.class) {
+          return clazz.cast(transferTimeouts);
+        }
+        throw new IllegalArgumentException("No dependency of type [" + clazz.getName() + "]");
+      }
+    };
+  }
+}
@@ -0,0 +1,111 @@
+package demo.common;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * In-memory counters and latency histograms of this service instance.
+ *
+ * <p>Entities can't have dependencies injected, so the registry is a process-wide singleton,
+ * reached through {@link #global()}. Latencies are recorded in microseconds and reported in
+ * milliseconds. Recording is lock-free and cheap enough for the hot path.
+ *
+ * <p>A histogram covers everything recorded since the instance started, unless it is recorded with
+ * {@link #recordRecent}, in which case it covers the last {@link #RECENT_WINDOW} only (see {@link
+ * SlidingHistogram}).
+ */
+public final class Metrics {
+
+  public static final Duration RECENT_WINDOW = Duration.ofMinutes(5);
+
+  private static final int RECENT_WINDOW_INTERVALS = 10;
+
+  private static final Metrics GLOBAL = new Metrics();
+
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+  private final Map<String, SlidingHistogram> recentHistograms = new ConcurrentHashMap<>();
+
+  public static Metrics global() {
+    return GLOBAL;
+  }
+
+  public void increment(String counter) {
+    counters.computeIfAbsent(counter, __ -> new LongAdder()).increment();
+  }
+
+  public void record(String histogram, Duration latency) {
+    var micros = Math.max(0, latency.toNanos() / 1000);
+    histograms.computeIfAbsent(histogram, __ -> new ConcurrentHistogram(3)).recordValue(micros);
+  }
+
+  /** Records into a histogram over the last {@link #RECENT_WINDOW}. */
+  public void recordRecent(String histogram, Duration latency) {
+    recentHistograms
+        .computeIfAbsent(
+            histogram, __ -> new SlidingHistogram(RECENT_WINDOW, RECENT_WINDOW_INTERVALS))
+        .record(latency);
+  }
+
+  public void recordSince(String histogram, Instant start) {
+    record(histogram, Duration.between(start, Instant.now()));
+  }
+
+  /** Records the time until the stage returned by {@code call} completes, successfully or not. */
+  public <T> CompletionStage<T> time(String histogram, Supplier<CompletionStage<T>> call) {
+    var start = System.nanoTime();
+    CompletionStage<T> stage;
+    try {
+      stage = call.get();
+    } catch (RuntimeException e) {
+      stage = CompletableFuture.failedFuture(e);
+    }
+    return stage.whenComplete(
+        (result, error) -> record(histogram, Duration.ofNanos(System.nanoTime() - start)));
+  }
+
+  /** Latency recorded so far in the given histogram, if any. */
+  public Optional<Latency> latency(String histogram) {
+    return Optional.ofNullable(histograms.get(histogram)).map(Latency::of);
+  }
+
+  /** Latency recorded over the last {@link #RECENT_WINDOW} with {@link #recordRecent}, if any. */
+  public Optional<Latency> recentLatency(String histogram) {
+    return Optional.ofNullable(recentHistograms.get(histogram)).map(SlidingHistogram::latency);
+  }
+
+  public Snapshot snapshot() {
+    var counterValues = new TreeMap<String, Long>();
+    counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+    var latencies = new TreeMap<String, Latency>();
+    histograms.forEach((name, histogram) -> latencies.put(name, Latency.of(histogram)));
+    recentHistograms.forEach((name, histogram) -> latencies.put(name, histogram.latency()));
+    return new Snapshot(counterValues, latencies);
+  }
+
+  public record Snapshot(Map<String, Long> counters, Map<String, Latency> latencies) {}
+
+  public record Latency(long count, double p50, double p90, double p99, double max, double mean) {
+
+    static Latency of(Histogram histogram) {
+      var copy = histogram.copy();
+      return new Latency(
+          copy.getTotalCount(),
+          copy.getValueAtPercentile(50) / 1000.0,
+          copy.getValueAtPercentile(90) / 1000.0,
+          copy.getValueAtPercentile(99) / 1000.0,
+          copy.getMaxValue() / 1000.0,
+          copy.getMean() / 1000.0);
+    }
+  }
+}
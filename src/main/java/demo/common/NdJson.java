@@ -0,0 +1,31 @@
+package demo.common;
+
+import akka.http.javadsl.model.ContentType;
+import akka.http.javadsl.model.ContentTypes;
+import akka.http.javadsl.model.HttpCharsets;
+import akka.http.javadsl.model.HttpEntities;
+import akka.http.javadsl.model.HttpResponse;
+import akka.http.javadsl.model.MediaTypes;
+import akka.javasdk.JsonSupport;
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
+
+/**
+ * Streams elements as newline-delimited JSON, one JSON document per line, so clients can process
+ * each element as soon as it is produced.
+ */
+public final class NdJson {
+
+  public static final ContentType CONTENT_TYPE =
+      ContentTypes.create(MediaTypes.applicationWithFixedCharset("x-ndjson", HttpCharsets.UTF_8));
+
+  private static final ByteString NEWLINE = ByteString.fromString("\n");
+
+  private NdJson() {}
+
+  public static <T> HttpResponse response(Source<T, ?> elements) {
+    var lines =
+        elements.map(element -> JsonSupport.encodeToAkkaByteString(element).concat(NEWLINE));
+    return HttpResponse.create().withEntity(HttpEntities.createChunked(CONTENT_TYPE, lines));
+  }
+}
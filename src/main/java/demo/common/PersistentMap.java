@@ -0,0 +1,367 @@
+package demo.common;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable hash map with structural sharing (a hash array mapped trie).
+ *
+ * <p>{@link #plus} and {@link #minus} return a new map that shares all untouched nodes with the
+ * original one, so each update copies at most one small node per trie level: O(log32 n) time and
+ * allocation instead of the O(n) of copying a {@code HashMap}. Lookups are O(log32 n) as well.
+ *
+ * <p>It is a read-only {@link Map}: Jackson serializes it as a regular JSON object, and
+ * deserializes it from one through the delegating constructor. Null keys and values are not
+ * supported.
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+  private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  private final Node root;
+  private final int size;
+
+  private PersistentMap(Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @JsonCreator
+  public PersistentMap(Map<K, V> entries) {
+    var map = PersistentMap.<K, V>from(entries);
+    this.root = map.root;
+    this.size = map.size;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> empty() {
+    return (PersistentMap<K, V>) EMPTY;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentMap<K, V> from(Map<? extends K, ? extends V> entries) {
+    if (entries instanceof PersistentMap<?, ?> persistent) {
+      return (PersistentMap<K, V>) persistent;
+    }
+    PersistentMap<K, V> map = empty();
+    for (var entry : entries.entrySet()) {
+      map = map.plus(entry.getKey(), entry.getValue());
+    }
+    return map;
+  }
+
+  public PersistentMap<K, V> plus(K key, V value) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(value, "value");
+    var added = new boolean[1];
+    var newRoot = root.put(0, hash(key), key, value, added);
+    if (newRoot == root) {
+      return this;
+    }
+    return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+  }
+
+  public PersistentMap<K, V> minus(Object key) {
+    if (key == null) {
+      return this;
+    }
+    var newRoot = root.remove(0, hash(key), key);
+    if (newRoot == root) {
+      return this;
+    } else if (newRoot == null) {
+      return empty();
+    } else {
+      return new PersistentMap<>(newRoot, size - 1);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    if (key == null) {
+      return null;
+    }
+    return (V) root.find(0, hash(key), key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bitpos(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /**
+   * A trie node. Both node kinds keep their content in an array of key/value pairs; a null key
+   * marks a pair whose value is a child node.
+   */
+  private sealed interface Node permits BitmapNode, CollisionNode {
+
+    Object[] array();
+
+    Object find(int shift, int hash, Object key);
+
+    Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+    /** Returns the node without the key, or null if the node became empty. */
+    Node remove(int shift, int hash, Object key);
+  }
+
+  private record BitmapNode(int bitmap, Object[] array) implements Node {
+
+    static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+    private int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    public Object find(int shift, int hash, Object key) {
+      int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return null;
+      }
+      int idx = index(bit);
+      var keyOrNull = array[2 * idx];
+      var valueOrNode = array[2 * idx + 1];
+      if (keyOrNull == null) {
+        return ((Node) valueOrNode).find(shift + BITS, hash, key);
+      }
+      return key.equals(keyOrNull) ? valueOrNode : null;
+    }
+
+    @Override
+    public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+      int bit = bitpos(hash, shift);
+      int idx = index(bit);
+
+      if ((bitmap & bit) == 0) {
+        added[0] = true;
+        var newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, 2 * idx);
+        newArray[2 * idx] = key;
+        newArray[2 * idx + 1] = value;
+        System.arraycopy(array, 2 * idx, newArray, 2 * idx + 2, array.length - 2 * idx);
+        return new BitmapNode(bitmap | bit, newArray);
+      }
+
+      var keyOrNull = array[2 * idx];
+      var valueOrNode = array[2 * idx + 1];
+      if (keyOrNull == null) {
+        var child = ((Node) valueOrNode).put(shift + BITS, hash, key, value, added);
+        return child == valueOrNode ? this : withSlot(2 * idx + 1, child);
+      } else if (key.equals(keyOrNull)) {
+        return value == valueOrNode ? this : withSlot(2 * idx + 1, value);
+      } else {
+        added[0] = true;
+        var child = pairNode(shift + BITS, keyOrNull, valueOrNode, hash, key, value);
+        var newArray = array.clone();
+        newArray[2 * idx] = null;
+        newArray[2 * idx + 1] = child;
+        return new BitmapNode(bitmap, newArray);
+      }
+    }
+
+    @Override
+    public Node remove(int shift, int hash, Object key) {
+      int bit = bitpos(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int idx = index(bit);
+      var keyOrNull = array[2 * idx];
+      var valueOrNode = array[2 * idx + 1];
+
+      if (keyOrNull == null) {
+        var child = ((Node) valueOrNode).remove(shift + BITS, hash, key);
+        if (child == valueOrNode) {
+          return this;
+        } else if (child != null) {
+          return withSlot(2 * idx + 1, child);
+        }
+      } else if (!key.equals(keyOrNull)) {
+        return this;
+      }
+
+      if (bitmap == bit) {
+        return null;
+      }
+      var newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, 2 * idx);
+      System.arraycopy(array, 2 * idx + 2, newArray, 2 * idx, newArray.length - 2 * idx);
+      return new BitmapNode(bitmap & ~bit, newArray);
+    }
+
+    private BitmapNode withSlot(int slot, Object content) {
+      var newArray = array.clone();
+      newArray[slot] = content;
+      return new BitmapNode(bitmap, newArray);
+    }
+
+    private static Node pairNode(
+        int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+      int hash1 = hash(key1);
+      if (hash1 == hash2) {
+        return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+      }
+      var ignored = new boolean[1];
+      return EMPTY
+          .put(shift, hash1, key1, value1, ignored)
+          .put(shift, hash2, key2, value2, ignored);
+    }
+  }
+
+  /** Holds keys whose full 32-bit hashes are equal. */
+  private record CollisionNode(int hash, Object[] array) implements Node {
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public Object find(int shift, int hash, Object key) {
+      int i = hash == this.hash ? indexOf(key) : -1;
+      return i < 0 ? null : array[i + 1];
+    }
+
+    @Override
+    public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+      if (hash != this.hash) {
+        // nest this node one level down and let a bitmap node tell both hashes apart
+        var parent = new BitmapNode(bitpos(this.hash, shift), new Object[] {null, this});
+        return parent.put(shift, hash, key, value, added);
+      }
+      int i = indexOf(key);
+      if (i >= 0) {
+        if (array[i + 1] == value) {
+          return this;
+        }
+        var newArray = array.clone();
+        newArray[i + 1] = value;
+        return new CollisionNode(hash, newArray);
+      }
+      added[0] = true;
+      var newArray = new Object[array.length + 2];
+      System.arraycopy(array, 0, newArray, 0, array.length);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      return new CollisionNode(hash, newArray);
+    }
+
+    @Override
+    public Node remove(int shift, int hash, Object key) {
+      int i = hash == this.hash ? indexOf(key) : -1;
+      if (i < 0) {
+        return this;
+      } else if (array.length == 2) {
+        return null;
+      }
+      var newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, i);
+      System.arraycopy(array, i + 2, newArray, i, newArray.length - i);
+      return new CollisionNode(hash, newArray);
+    }
+  }
+
+  /** Depth-first walk over the trie, without materializing the entries up front. */
+  private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+    // 7 bitmap levels for a 32-bit hash, plus one collision level
+    private final Object[][] arrays = new Object[8][];
+    private final int[] positions = new int[8];
+    private int depth = 0;
+    private Entry<K, V> next;
+
+    EntryIterator(Node root) {
+      push(root.array());
+      advance();
+    }
+
+    private void push(Object[] array) {
+      arrays[depth] = array;
+      positions[depth] = 0;
+      depth++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      next = null;
+      while (depth > 0) {
+        var array = arrays[depth - 1];
+        int pos = positions[depth - 1];
+        if (pos >= array.length) {
+          arrays[--depth] = null;
+          continue;
+        }
+        positions[depth - 1] = pos + 2;
+        if (array[pos] == null) {
+          push(((Node) array[pos + 1]).array());
+        } else {
+          next = new SimpleImmutableEntry<>((K) array[pos], (V) array[pos + 1]);
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      var current = next;
+      advance();
+      return current;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package demo.common;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable set remembering the most recently added ids, used to detect duplicated messages.
+ *
+ * <p>The set is bounded to {@code capacity} ids, split in two generations of half that size. New
+ * ids go to the current generation; when it is full it becomes the previous one and the old
+ * previous generation is dropped. Half the capacity is therefore the eviction watermark: an id is
+ * remembered for at least that many later additions. Lookups and updates are O(log n) on persistent
+ * maps, so no update copies the whole set.
+ *
+ * <p>It serializes as its capacity and the ids of each generation, so that a snapshot reads back
+ * with the same generations, removed ids included. Snapshots written with a single list of ids,
+ * oldest first, are read by adding them in order.
+ */
+public final class RecentIds {
+
+  private final int generationSize;
+  private final PersistentMap<String, Boolean> previous;
+  private final PersistentMap<String, Boolean> current;
+
+  private RecentIds(
+      int generationSize,
+      PersistentMap<String, Boolean> previous,
+      PersistentMap<String, Boolean> current) {
+    this.generationSize = generationSize;
+    this.previous = previous;
+    this.current = current;
+  }
+
+  public static RecentIds empty(int capacity) {
+    if (capacity < 2) {
+      throw new IllegalArgumentException("capacity must be at least 2");
+    }
+    return new RecentIds(capacity / 2, PersistentMap.empty(), PersistentMap.empty());
+  }
+
+  /** Ids added in the given order, oldest first. */
+  public static RecentIds of(int capacity, Collection<String> ids) {
+    var recentIds = empty(capacity);
+    for (var id : ids) {
+      recentIds = recentIds.add(id);
+    }
+    return recentIds;
+  }
+
+  @JsonCreator
+  static RecentIds fromJson(
+      @JsonProperty("capacity") int capacity,
+      @JsonProperty("previous") Collection<String> previous,
+      @JsonProperty("current") Collection<String> current,
+      // form of the snapshots written before
+      @JsonProperty("ids") Collection<String> ids) {
+    if (previous == null && current == null) {
+      return of(capacity, ids == null ? List.of() : ids);
+    }
+    return of(capacity, previous, current);
+  }
+
+  /**
+   * Ids as they were in each generation, as given by {@link #previousIds} and {@link #currentIds}.
+   */
+  public static RecentIds of(
+      int capacity, Collection<String> previous, Collection<String> current) {
+    return new RecentIds(empty(capacity).generationSize, keys(previous), keys(current));
+  }
+
+  private static PersistentMap<String, Boolean> keys(Collection<String> ids) {
+    var keys = PersistentMap.<String, Boolean>empty();
+    if (ids != null) {
+      for (var id : ids) {
+        keys = keys.plus(id, true);
+      }
+    }
+    return keys;
+  }
+
+  @JsonProperty("capacity")
+  public int capacity() {
+    return generationSize * 2;
+  }
+
+  public boolean contains(String id) {
+    return current.containsKey(id) || previous.containsKey(id);
+  }
+
+  public RecentIds add(String id) {
+    if (contains(id)) {
+      return this;
+    } else if (current.size() >= generationSize) {
+      return new RecentIds(
+          generationSize, current, PersistentMap.<String, Boolean>empty().plus(id, true));
+    } else {
+      return new RecentIds(generationSize, previous, current.plus(id, true));
+    }
+  }
+
+  public RecentIds remove(String id) {
+    if (!contains(id)) {
+      return this;
+    }
+    return new RecentIds(generationSize, previous.minus(id), current.minus(id));
+  }
+
+  public int size() {
+    return previous.size() + current.size();
+  }
+
+  @JsonIgnore
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @JsonProperty("previous")
+  public List<String> previousIds() {
+    return new ArrayList<>(previous.keySet());
+  }
+
+  @JsonProperty("current")
+  public List<String> currentIds() {
+    return new ArrayList<>(current.keySet());
+  }
+
+  /** The ids, oldest generation first. */
+  @JsonIgnore
+  public List<String> toList() {
+    var ids = new ArrayList<String>(size());
+    ids.addAll(previous.keySet());
+    ids.addAll(current.keySet());
+    return ids;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof RecentIds that
+        && generationSize == that.generationSize
+        && previous.equals(that.previous)
+        && current.equals(that.current);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * previous.hashCode() + current.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "RecentIds" + toList();
+  }
+}
@@ -0,0 +1,46 @@
+package demo.common;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public final class Retries {
+
+  private Retries() {}
+
+  /**
+   * Calls {@code call} and, if the returned stage fails, calls it again up to {@code retries}
+   * times, doubling {@code delay} between attempts. The returned stage fails with the error of the
+   * last attempt.
+   */
+  public static <T> CompletionStage<T> withRetries(
+      Supplier<CompletionStage<T>> call, int retries, Duration delay) {
+
+    CompletionStage<T> attempt;
+    try {
+      attempt = call.get();
+    } catch (RuntimeException e) {
+      attempt = CompletableFuture.failedFuture(e);
+    }
+
+    if (retries <= 0) {
+      return attempt;
+    }
+
+    return attempt
+        .handle(
+            (value, error) -> {
+              if (error == null) {
+                return CompletableFuture.completedFuture(value);
+              }
+              var afterDelay =
+                  CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS);
+              return CompletableFuture.runAsync(() -> {}, afterDelay)
+                  .thenCompose(__ -> withRetries(call, retries - 1, delay.multipliedBy(2)));
+            })
+        .thenCompose(Function.identity());
+  }
+}
@@ -0,0 +1,65 @@
+package demo.common;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency histogram over a sliding time window, so that its percentiles follow recent changes
+ * instead of being diluted by everything recorded since the service instance started.
+ *
+ * <p>The window is split in {@code intervals} equal intervals. Values are recorded lock-free into
+ * an HdrHistogram {@link Recorder}; reading drops the intervals older than the window and moves the
+ * values recorded since the previous read to the current interval. A value therefore counts for at
+ * least one window length, and for up to the time between two reads more.
+ */
+public final class SlidingHistogram {
+
+  private final long intervalNanos;
+  private final LongSupplier nanoClock;
+  private final Recorder recorder = new Recorder(3);
+  // completed intervals, the oldest one overwritten first
+  private final Histogram[] completed;
+  private int next = 0;
+  private Histogram current = new Histogram(3);
+  private long currentStart;
+
+  public SlidingHistogram(Duration window, int intervals) {
+    this(window, intervals, System::nanoTime);
+  }
+
+  SlidingHistogram(Duration window, int intervals, LongSupplier nanoClock) {
+    this.intervalNanos = window.toNanos() / intervals;
+    this.nanoClock = nanoClock;
+    this.completed = new Histogram[intervals - 1];
+    this.currentStart = nanoClock.getAsLong();
+  }
+
+  public void record(Duration latency) {
+    recorder.recordValue(Math.max(0, latency.toNanos() / 1000));
+  }
+
+  /** Latency recorded over the window. */
+  public synchronized Metrics.Latency latency() {
+    var now = nanoClock.getAsLong();
+    var elapsed = (now - currentStart) / intervalNanos;
+    for (long i = 0; i < Math.min(elapsed, completed.length + 1); i++) {
+      if (completed.length > 0) {
+        completed[next] = current;
+        next = (next + 1) % completed.length;
+      }
+      current = new Histogram(3);
+    }
+    currentStart += elapsed * intervalNanos;
+    current.add(recorder.getIntervalHistogram());
+
+    var window = current.copy();
+    for (var interval : completed) {
+      if (interval != null) {
+        window.add(interval);
+      }
+    }
+    return Metrics.Latency.of(window);
+  }
+}
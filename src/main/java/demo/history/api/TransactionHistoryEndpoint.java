@@ -0,0 +1,109 @@
+package demo.history.api;
+
+import akka.http.javadsl.model.HttpResponse;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import demo.common.NdJson;
+import demo.history.application.TransactionHistoryView;
+import demo.history.domain.TransactionRecord;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+// Opened up for access from the public internet to make the service easy to try out.
+// For actual services meant for production this must be carefully considered and often set more
+// limited
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+@HttpEndpoint("/history")
+public class TransactionHistoryEndpoint extends AbstractHttpEndpoint {
+
+  private static final int DEFAULT_LIMIT = 50;
+  private static final int MAX_LIMIT = 1000;
+
+  private final ComponentClient componentClient;
+
+  public TransactionHistoryEndpoint(ComponentClient componentClient) {
+    this.componentClient = componentClient;
+  }
+
+  /**
+   * The most recent transactions of a wallet. Query parameters: {@code limit} (default {@value
+   * #DEFAULT_LIMIT}, at most {@value #MAX_LIMIT}) and {@code cursor}, the {@code nextCursor} of the
+   * previous page.
+   */
+  @Get("/{walletId}")
+  public TransactionHistoryPage getHistory(String walletId) {
+    var queryParams = requestContext().queryParams();
+    var limit = Math.min(queryParams.getInteger("limit").orElse(DEFAULT_LIMIT), MAX_LIMIT);
+    if (limit <= 0) {
+      throw HttpException.badRequest("limit must be positive");
+    }
+
+    // one more than asked for tells whether there is a next page
+    var transactions =
+        queryParams
+            .getString("cursor")
+            .map(Cursor::decode)
+            .map(
+                cursor ->
+                    componentClient
+                        .forView()
+                        .method(TransactionHistoryView::getNextPage)
+                        .invoke(
+                            new TransactionHistoryView.NextPage(
+                                walletId, cursor.initiatedAt(), cursor.transactionId(), limit + 1)))
+            .orElseGet(
+                () ->
+                    componentClient
+                        .forView()
+                        .method(TransactionHistoryView::getFirstPage)
+                        .invoke(new TransactionHistoryView.FirstPage(walletId, limit + 1)))
+            .transactions();
+
+    if (transactions.size() <= limit) {
+      return new TransactionHistoryPage(transactions, null);
+    }
+    List<TransactionRecord> page = transactions.subList(0, limit);
+    return new TransactionHistoryPage(page, Cursor.after(page.getLast()).encode());
+  }
+
+  /**
+   * Statement of a wallet: all its transactions, oldest first, streamed as newline-delimited JSON.
+   */
+  @Get("/{walletId}/export")
+  public HttpResponse export(String walletId) {
+    return NdJson.response(
+        componentClient.forView().stream(TransactionHistoryView::streamAll).source(walletId));
+  }
+
+  /** Position after a transaction in the history, opaque to clients. */
+  record Cursor(Instant initiatedAt, String transactionId) {
+
+    static Cursor after(TransactionRecord record) {
+      return new Cursor(record.initiatedAt(), record.transactionId());
+    }
+
+    String encode() {
+      var value = initiatedAt + "|" + transactionId;
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Cursor decode(String cursor) {
+      try {
+        var value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        var separator = value.indexOf('|');
+        return new Cursor(
+            Instant.parse(value.substring(0, separator)), value.substring(separator + 1));
+      } catch (RuntimeException e) {
+        throw HttpException.badRequest("Invalid cursor [" + cursor + "]");
+      }
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package demo.history.api;
+
+import demo.history.domain.TransactionRecord;
+import java.util.List;
+
+/**
+ * One page of the transactions of a wallet, most recent first. {@code nextCursor} fetches the
+ * following page and is absent on the last one.
+ */
+public record TransactionHistoryPage(List<TransactionRecord> transactions, String nextCursor) {}
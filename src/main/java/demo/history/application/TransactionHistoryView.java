@@ -0,0 +1,62 @@
+package demo.history.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import demo.history.domain.TransactionRecord;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Transactions of each wallet, most recent first. Pages are read with keyset pagination: the next
+ * page starts after the initiation time and id of the last transaction of the previous one, so
+ * reading a page costs the same however deep it is.
+ */
+@ComponentId("transaction-history-view")
+public class TransactionHistoryView extends View {
+
+  public record Transactions(List<TransactionRecord> transactions) {}
+
+  public record FirstPage(String walletId, int limit) {}
+
+  public record NextPage(String walletId, Instant before, String beforeId, int limit) {}
+
+  @Query(
+      """
+      SELECT * AS transactions FROM transaction_history
+      WHERE walletId = :walletId
+      ORDER BY initiatedAt DESC, transactionId DESC
+      LIMIT :limit
+      """)
+  public QueryEffect<Transactions> getFirstPage(FirstPage page) {
+    return queryResult();
+  }
+
+  @Query(
+      """
+      SELECT * AS transactions FROM transaction_history
+      WHERE walletId = :walletId
+        AND (initiatedAt < :before OR (initiatedAt = :before AND transactionId < :beforeId))
+      ORDER BY initiatedAt DESC, transactionId DESC
+      LIMIT :limit
+      """)
+  public QueryEffect<Transactions> getNextPage(NextPage page) {
+    return queryResult();
+  }
+
+  /** All transactions of the wallet, oldest first. */
+  @Query(
+      """
+      SELECT * FROM transaction_history
+      WHERE walletId = :walletId
+      ORDER BY initiatedAt, transactionId
+      """)
+  public QueryStreamEffect<TransactionRecord> streamAll(String walletId) {
+    return queryStreamResult();
+  }
+
+  @Consume.FromKeyValueEntity(TransactionRecordEntity.class)
+  public static class TransactionHistory extends TableUpdater<TransactionRecord> {}
+}
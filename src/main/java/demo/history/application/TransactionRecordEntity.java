@@ -0,0 +1,46 @@
+package demo.history.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import demo.history.domain.TransactionRecord;
+import demo.history.domain.TransactionUpdate;
+
+/**
+ * History record of one wallet transaction, identified by {@link #idOf}. A view row is keyed by the
+ * id of the entity it comes from, so each transaction needs its own entity to become its own row of
+ * {@link TransactionHistoryView}.
+ */
+@ComponentId("transaction-record")
+public class TransactionRecordEntity extends KeyValueEntity<TransactionRecord> {
+
+  private final Effect<Done> doneEffect = effects().reply(Done.getInstance());
+
+  public static String idOf(String walletId, String transactionId) {
+    return walletId + ":" + transactionId;
+  }
+
+  public Effect<Done> initiated(TransactionRecord record) {
+    if (currentState() != null) {
+      // redelivered
+      return doneEffect;
+    }
+    return effects().updateState(record).thenReply(Done.getInstance());
+  }
+
+  public Effect<Done> update(TransactionUpdate update) {
+    if (currentState() == null) {
+      return effects().error("Transaction [" + commandContext().entityId() + "] was not initiated");
+    } else if (currentState().status() != TransactionRecord.Status.PENDING) {
+      // redelivered
+      return doneEffect;
+    }
+    var updated =
+        switch (update.status()) {
+          case EXECUTED -> currentState().executed(update.at());
+          case CANCELLED -> currentState().cancelled(update.at());
+          case PENDING -> currentState();
+        };
+    return effects().updateState(updated).thenReply(Done.getInstance());
+  }
+}
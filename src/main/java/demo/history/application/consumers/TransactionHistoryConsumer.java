@@ -0,0 +1,84 @@
+package demo.history.application.consumers;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.consumer.Consumer;
+import demo.history.application.TransactionRecordEntity;
+import demo.history.domain.TransactionRecord;
+import demo.history.domain.TransactionUpdate;
+import demo.wallet.application.WalletEntity;
+import demo.wallet.domain.Wallet.Transaction.TransactionType;
+import demo.wallet.domain.WalletEvent;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+/** Records every wallet transaction, at the time of its events, in the transaction history. */
+@ComponentId("transaction-history")
+@Consume.FromEventSourcedEntity(WalletEntity.class)
+public class TransactionHistoryConsumer extends Consumer {
+
+  private final ComponentClient componentClient;
+
+  public TransactionHistoryConsumer(ComponentClient componentClient) {
+    this.componentClient = componentClient;
+  }
+
+  public Effect onEvent(WalletEvent event) {
+    if (messageContext().eventSubject().isEmpty()) {
+      return effects().ignore();
+    }
+
+    var walletId = messageContext().eventSubject().get();
+    var at = eventTime();
+    return switch (event) {
+      case WalletEvent.DepositInitiated evt ->
+          initiated(
+              TransactionRecord.initiated(
+                  walletId, evt.transactionId(), TransactionType.DEPOSIT, evt.amount(), at));
+      case WalletEvent.WithdrawInitiated evt ->
+          initiated(
+              TransactionRecord.initiated(
+                  walletId, evt.transactionId(), TransactionType.WITHDRAW, evt.amount(), at));
+
+      case WalletEvent.Deposited evt ->
+          update(walletId, evt.transactionId(), TransactionRecord.Status.EXECUTED, at);
+      case WalletEvent.Withdrawn evt ->
+          update(walletId, evt.transactionId(), TransactionRecord.Status.EXECUTED, at);
+      case WalletEvent.TransactionCancelled evt ->
+          update(walletId, evt.transactionId(), TransactionRecord.Status.CANCELLED, at);
+
+      default -> effects().ignore();
+    };
+  }
+
+  private Effect initiated(TransactionRecord record) {
+    var id = TransactionRecordEntity.idOf(record.walletId(), record.transactionId());
+    return effects()
+        .asyncDone(
+            componentClient
+                .forKeyValueEntity(id)
+                .method(TransactionRecordEntity::initiated)
+                .invokeAsync(record));
+  }
+
+  private Effect update(
+      String walletId, String transactionId, TransactionRecord.Status status, Instant at) {
+    var id = TransactionRecordEntity.idOf(walletId, transactionId);
+    return effects()
+        .asyncDone(
+            componentClient
+                .forKeyValueEntity(id)
+                .method(TransactionRecordEntity::update)
+                .invokeAsync(new TransactionUpdate(status, at)));
+  }
+
+  private Instant eventTime() {
+    return messageContext()
+        .metadata()
+        .asCloudEvent()
+        .time()
+        .map(ZonedDateTime::toInstant)
+        .orElseGet(Instant::now);
+  }
+}
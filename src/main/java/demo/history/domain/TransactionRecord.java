@@ -0,0 +1,36 @@
+package demo.history.domain;
+
+import demo.wallet.domain.Wallet.Transaction.TransactionType;
+import java.time.Instant;
+
+/** One deposit or withdrawal of a wallet, as kept in its transaction history. */
+public record TransactionRecord(
+    String walletId,
+    String transactionId,
+    TransactionType type,
+    long amount,
+    Status status,
+    Instant initiatedAt,
+    Instant updatedAt) {
+
+  public enum Status {
+    PENDING,
+    EXECUTED,
+    CANCELLED
+  }
+
+  public static TransactionRecord initiated(
+      String walletId, String transactionId, TransactionType type, long amount, Instant at) {
+    return new TransactionRecord(walletId, transactionId, type, amount, Status.PENDING, at, at);
+  }
+
+  public TransactionRecord executed(Instant at) {
+    return new TransactionRecord(
+        walletId, transactionId, type, amount, Status.EXECUTED, initiatedAt, at);
+  }
+
+  public TransactionRecord cancelled(Instant at) {
+    return new TransactionRecord(
+        walletId, transactionId, type, amount, Status.CANCELLED, initiatedAt, at);
+  }
+}
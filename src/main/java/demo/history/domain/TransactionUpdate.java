@@ -0,0 +1,6 @@
+package demo.history.domain;
+
+import java.time.Instant;
+
+/** A transaction executed or cancelled at the time of its wallet event. */
+public record TransactionUpdate(TransactionRecord.Status status, Instant at) {}
@@ -0,0 +1,20 @@
+package demo.metrics.api;
+
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import demo.common.Metrics;
+
+// Opened up for access from the public internet to make the service easy to try out.
+// For actual services meant for production this must be carefully considered and often set more
+// limited
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+@HttpEndpoint("/metrics")
+public class MetricsEndpoint {
+
+  /** Counters and latencies (in milliseconds) recorded by this service instance. */
+  @Get
+  public Metrics.Snapshot metrics() {
+    return Metrics.global().snapshot();
+  }
+}
@@ -0,0 +1,87 @@
+package demo.stats.api;
+
+import akka.http.javadsl.model.HttpResponse;
+import akka.javasdk.annotations.Acl;
+import akka.javasdk.annotations.http.Get;
+import akka.javasdk.annotations.http.HttpEndpoint;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
+import akka.javasdk.http.HttpResponses;
+import demo.stats.application.TransferStatsEntity;
+import demo.stats.application.WalletStatsEntity;
+import demo.stats.domain.TransferStats;
+import demo.stats.domain.WalletStats;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+// Opened up for access from the public internet to make the service easy to try out.
+// For actual services meant for production this must be carefully considered and often set more
+// limited
+@Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
+@HttpEndpoint("/stats")
+public class StatsEndpoint extends AbstractHttpEndpoint {
+
+  private static final int DEFAULT_MINUTES = 15;
+  private static final int MAX_MINUTES = 24 * 60;
+
+  private final ComponentClient componentClient;
+
+  public StatsEndpoint(ComponentClient componentClient) {
+    this.componentClient = componentClient;
+  }
+
+  /** Total balance, reserved funds and number of wallets, summed over the stats shards. */
+  @Get("/wallets")
+  public CompletionStage<HttpResponse> walletTotals() {
+    CompletionStage<WalletStats.Totals> totals =
+        CompletableFuture.completedFuture(WalletStats.Totals.ZERO);
+    for (var shard : WalletStatsEntity.allShards()) {
+      var shardTotals =
+          componentClient
+              .forEventSourcedEntity(shard)
+              .method(WalletStatsEntity::getTotals)
+              .invokeAsync();
+      totals = totals.thenCombine(shardTotals, WalletStats.Totals::plus);
+    }
+    return totals.thenApply(HttpResponses::ok);
+  }
+
+  /**
+   * Mediator transfers completed and cancelled per minute, for the last {@code minutes} minutes
+   * (query parameter, default {@value #DEFAULT_MINUTES}), most recent first. Each minute sums its
+   * {@value TransferStatsEntity#SHARDS} buckets.
+   */
+  @Get("/transfers")
+  public CompletionStage<HttpResponse> transferVolume() {
+    var minutes = requestContext().queryParams().getInteger("minutes").orElse(DEFAULT_MINUTES);
+    if (minutes <= 0 || minutes > MAX_MINUTES) {
+      throw HttpException.badRequest("minutes must be between 1 and " + MAX_MINUTES);
+    }
+
+    var now = Instant.now();
+    var volumes = new ArrayList<CompletableFuture<TransferVolume>>(minutes);
+    for (int i = 0; i < minutes; i++) {
+      var minute = TransferStatsEntity.minuteOf(now.minus(i, ChronoUnit.MINUTES));
+      CompletionStage<TransferStats.Counts> counts =
+          CompletableFuture.completedFuture(TransferStats.Counts.ZERO);
+      for (var bucket : TransferStatsEntity.bucketsOf(minute)) {
+        var bucketCounts =
+            componentClient
+                .forEventSourcedEntity(bucket)
+                .method(TransferStatsEntity::getCounts)
+                .invokeAsync();
+        counts = counts.thenCombine(bucketCounts, TransferStats.Counts::plus);
+      }
+      volumes.add(
+          counts
+              .thenApply(minuteCounts -> TransferVolume.of(minute, minuteCounts))
+              .toCompletableFuture());
+    }
+    return CompletableFuture.allOf(volumes.toArray(CompletableFuture[]::new))
+        .thenApply(__ -> HttpResponses.ok(volumes.stream().map(CompletableFuture::join).toList()));
+  }
+}
@@ -0,0 +1,11 @@
+package demo.stats.api;
+
+import demo.stats.domain.TransferStats;
+
+/** Mediator transfers ended within the minute starting at {@code minute}. */
+public record TransferVolume(String minute, long completed, long cancelled) {
+
+  public static TransferVolume of(String minute, TransferStats.Counts counts) {
+    return new TransferVolume(minute, counts.completed(), counts.cancelled());
+  }
+}
@@ -0,0 +1,73 @@
+package demo.stats.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import demo.stats.domain.TransferStats;
+import demo.stats.domain.TransferStatsEvent;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Transfers ended within one minute, spread over {@link #SHARDS} buckets by transfer id so that the
+ * transfers ending in the same minute don't all queue on a single entity. A bucket is identified by
+ * {@link #bucketOf} the minute and the transfer; the volume of a minute is the sum of its {@link
+ * #bucketsOf} buckets.
+ *
+ * <p>Like {@link WalletStatsEntity}, a bucket is event sourced: counting a transfer persists a
+ * small event, and a redelivered one persists nothing.
+ */
+@ComponentId("transfer-stats")
+public class TransferStatsEntity extends EventSourcedEntity<TransferStats, TransferStatsEvent> {
+
+  public static final int SHARDS = 4;
+
+  private final Effect<Done> doneEffect = effects().reply(Done.getInstance());
+
+  /** The minute, in UTC, as in {@code 2025-01-31T10:15:00Z}. */
+  public static String minuteOf(Instant time) {
+    return time.truncatedTo(ChronoUnit.MINUTES).toString();
+  }
+
+  /** The bucket counting the given transfer if it ended at the given time. */
+  public static String bucketOf(Instant time, String transferId) {
+    return minuteOf(time) + "/" + Math.floorMod(transferId.hashCode(), SHARDS);
+  }
+
+  /** All the buckets of the given minute. */
+  public static List<String> bucketsOf(String minute) {
+    return IntStream.range(0, SHARDS).mapToObj(shard -> minute + "/" + shard).toList();
+  }
+
+  @Override
+  public TransferStats emptyState() {
+    return TransferStats.empty();
+  }
+
+  public Effect<Done> transferCompleted(String transferId) {
+    return update(new TransferStatsEvent.CompletedCounted(transferId));
+  }
+
+  public Effect<Done> transferCancelled(String transferId) {
+    return update(new TransferStatsEvent.CancelledCounted(transferId));
+  }
+
+  public ReadOnlyEffect<TransferStats.Counts> getCounts() {
+    return effects().reply(currentState().counts());
+  }
+
+  private Effect<Done> update(TransferStatsEvent event) {
+    if (currentState().applyEvent(event) == currentState()) {
+      // already counted
+      return doneEffect;
+    }
+    return effects().persist(event).thenReply(__ -> Done.getInstance());
+  }
+
+  @Override
+  public TransferStats applyEvent(TransferStatsEvent event) {
+    return currentState().applyEvent(event);
+  }
+}
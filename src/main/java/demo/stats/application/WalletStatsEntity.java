@@ -0,0 +1,75 @@
+package demo.stats.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import demo.stats.domain.StatsTransaction;
+import demo.stats.domain.WalletStats;
+import demo.stats.domain.WalletStatsEvent;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * One shard of the wallet totals. Wallets are spread over {@link #SHARDS} shards so that updates
+ * for different wallets don't all queue on a single entity; the totals of the system are the sum of
+ * all shards, a fixed number of reads.
+ *
+ * <p>The shard is event sourced: an update persists a small event rather than the whole state, with
+ * the transactions and wallets it remembers to detect redeliveries, which are only written with the
+ * snapshots. A redelivered update persists nothing.
+ */
+@ComponentId("wallet-stats")
+public class WalletStatsEntity extends EventSourcedEntity<WalletStats, WalletStatsEvent> {
+
+  public static final int SHARDS = 16;
+
+  private final Effect<Done> doneEffect = effects().reply(Done.getInstance());
+
+  public static String shardOf(String walletId) {
+    return "shard-" + Math.floorMod(walletId.hashCode(), SHARDS);
+  }
+
+  public static List<String> allShards() {
+    return IntStream.range(0, SHARDS).mapToObj(shard -> "shard-" + shard).toList();
+  }
+
+  @Override
+  public WalletStats emptyState() {
+    return WalletStats.empty();
+  }
+
+  public Effect<Done> walletCreated(String walletId) {
+    return update(new WalletStatsEvent.WalletCounted(walletId));
+  }
+
+  public Effect<Done> transactionInitiated(StatsTransaction tx) {
+    return update(
+        new WalletStatsEvent.TransactionInitiated(
+            tx.walletId(), tx.transactionId(), tx.amount(), tx.withdraw()));
+  }
+
+  public Effect<Done> transactionExecuted(StatsTransaction tx) {
+    return update(new WalletStatsEvent.TransactionExecuted(tx.walletId(), tx.transactionId()));
+  }
+
+  public Effect<Done> transactionCancelled(StatsTransaction tx) {
+    return update(new WalletStatsEvent.TransactionCancelled(tx.walletId(), tx.transactionId()));
+  }
+
+  public ReadOnlyEffect<WalletStats.Totals> getTotals() {
+    return effects().reply(currentState().totals());
+  }
+
+  private Effect<Done> update(WalletStatsEvent event) {
+    if (currentState().applyEvent(event) == currentState()) {
+      // already applied
+      return doneEffect;
+    }
+    return effects().persist(event).thenReply(__ -> Done.getInstance());
+  }
+
+  @Override
+  public WalletStats applyEvent(WalletStatsEvent event) {
+    return currentState().applyEvent(event);
+  }
+}
@@ -0,0 +1,58 @@
+package demo.stats.application.consumers;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.client.EventSourcedEntityClient;
+import akka.javasdk.consumer.Consumer;
+import demo.stats.application.TransferStatsEntity;
+import demo.transfer.application.TransferMediatorEntity;
+import demo.transfer.domain.TransferEvent;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+
+/** Counts mediator transfers in the minute their final event was persisted. */
+@ComponentId("transfer-stats-updater")
+@Consume.FromEventSourcedEntity(TransferMediatorEntity.class)
+public class TransferStatsConsumer extends Consumer {
+
+  private final ComponentClient componentClient;
+
+  public TransferStatsConsumer(ComponentClient componentClient) {
+    this.componentClient = componentClient;
+  }
+
+  public Effect onEvent(TransferEvent event) {
+    if (messageContext().eventSubject().isEmpty()) {
+      return effects().ignore();
+    }
+
+    var transferId = messageContext().eventSubject().get();
+    return switch (event) {
+      case TransferEvent.Completed __ ->
+          effects()
+              .asyncDone(
+                  bucket(transferId)
+                      .method(TransferStatsEntity::transferCompleted)
+                      .invokeAsync(transferId));
+      case TransferEvent.Cancelled __ ->
+          effects()
+              .asyncDone(
+                  bucket(transferId)
+                      .method(TransferStatsEntity::transferCancelled)
+                      .invokeAsync(transferId));
+      default -> effects().ignore();
+    };
+  }
+
+  private EventSourcedEntityClient bucket(String transferId) {
+    var time =
+        messageContext()
+            .metadata()
+            .asCloudEvent()
+            .time()
+            .map(ZonedDateTime::toInstant)
+            .orElseGet(Instant::now);
+    return componentClient.forEventSourcedEntity(TransferStatsEntity.bucketOf(time, transferId));
+  }
+}
@@ -0,0 +1,72 @@
+package demo.stats.application.consumers;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.client.EventSourcedEntityClient;
+import akka.javasdk.consumer.Consumer;
+import demo.stats.application.WalletStatsEntity;
+import demo.stats.domain.StatsTransaction;
+import demo.wallet.application.WalletEntity;
+import demo.wallet.domain.WalletEvent;
+
+@ComponentId("wallet-stats-updater")
+@Consume.FromEventSourcedEntity(WalletEntity.class)
+public class WalletStatsConsumer extends Consumer {
+
+  private final ComponentClient componentClient;
+
+  public WalletStatsConsumer(ComponentClient componentClient) {
+    this.componentClient = componentClient;
+  }
+
+  public Effect onEvent(WalletEvent event) {
+    if (messageContext().eventSubject().isEmpty()) {
+      return effects().ignore();
+    }
+
+    var walletId = messageContext().eventSubject().get();
+    var shard = componentClient.forEventSourcedEntity(WalletStatsEntity.shardOf(walletId));
+    return switch (event) {
+      case WalletEvent.WalletCreated __ ->
+          effects().asyncDone(shard.method(WalletStatsEntity::walletCreated).invokeAsync(walletId));
+
+      case WalletEvent.DepositInitiated evt ->
+          effects()
+              .asyncDone(
+                  shard
+                      .method(WalletStatsEntity::transactionInitiated)
+                      .invokeAsync(
+                          new StatsTransaction(
+                              walletId, evt.transactionId(), evt.amount(), false)));
+      case WalletEvent.WithdrawInitiated evt ->
+          effects()
+              .asyncDone(
+                  shard
+                      .method(WalletStatsEntity::transactionInitiated)
+                      .invokeAsync(
+                          new StatsTransaction(walletId, evt.transactionId(), evt.amount(), true)));
+
+      case WalletEvent.Deposited evt -> executed(shard, walletId, evt.transactionId());
+      case WalletEvent.Withdrawn evt -> executed(shard, walletId, evt.transactionId());
+
+      case WalletEvent.TransactionCancelled evt ->
+          effects()
+              .asyncDone(
+                  shard
+                      .method(WalletStatsEntity::transactionCancelled)
+                      .invokeAsync(StatsTransaction.of(walletId, evt.transactionId())));
+
+        // completing only forgets the executed transaction, totals are unchanged
+      case WalletEvent.TransactionCompleted __ -> effects().ignore();
+    };
+  }
+
+  private Effect executed(EventSourcedEntityClient shard, String walletId, String transactionId) {
+    return effects()
+        .asyncDone(
+            shard
+                .method(WalletStatsEntity::transactionExecuted)
+                .invokeAsync(StatsTransaction.of(walletId, transactionId)));
+  }
+}
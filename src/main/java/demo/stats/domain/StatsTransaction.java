@@ -0,0 +1,10 @@
+package demo.stats.domain;
+
+/** A wallet transaction reported to the wallet stats; amount and type are only needed initially. */
+public record StatsTransaction(
+    String walletId, String transactionId, long amount, boolean withdraw) {
+
+  public static StatsTransaction of(String walletId, String transactionId) {
+    return new StatsTransaction(walletId, transactionId, 0, false);
+  }
+}
@@ -0,0 +1,52 @@
+package demo.stats.domain;
+
+import demo.common.RecentIds;
+
+/**
+ * Mediator transfers of one bucket shard that completed or were cancelled within one minute. The
+ * transfers counted most recently are remembered so that a redelivered event is not counted twice.
+ * This is the state of an event sourced entity, so counting a transfer only writes its event and
+ * the remembered ids are written with the snapshots.
+ */
+public record TransferStats(long completed, long cancelled, RecentIds countedTransfers) {
+
+  private static final int COUNTED_TRANSFERS_CAPACITY = 1000;
+
+  public record Counts(long completed, long cancelled) {
+
+    public static final Counts ZERO = new Counts(0, 0);
+
+    public Counts plus(Counts other) {
+      return new Counts(completed + other.completed, cancelled + other.cancelled);
+    }
+  }
+
+  public static TransferStats empty() {
+    return new TransferStats(0, 0, RecentIds.empty(COUNTED_TRANSFERS_CAPACITY));
+  }
+
+  public Counts counts() {
+    return new Counts(completed, cancelled);
+  }
+
+  public TransferStats applyEvent(TransferStatsEvent event) {
+    return switch (event) {
+      case TransferStatsEvent.CompletedCounted evt -> transferCompleted(evt.transferId());
+      case TransferStatsEvent.CancelledCounted evt -> transferCancelled(evt.transferId());
+    };
+  }
+
+  public TransferStats transferCompleted(String transferId) {
+    if (countedTransfers.contains(transferId)) {
+      return this;
+    }
+    return new TransferStats(completed + 1, cancelled, countedTransfers.add(transferId));
+  }
+
+  public TransferStats transferCancelled(String transferId) {
+    if (countedTransfers.contains(transferId)) {
+      return this;
+    }
+    return new TransferStats(completed, cancelled + 1, countedTransfers.add(transferId));
+  }
+}
@@ -0,0 +1,13 @@
+package demo.stats.domain;
+
+import akka.javasdk.annotations.TypeName;
+
+/** A mediator transfer counted in a minute bucket, persisted once the first time only. */
+public sealed interface TransferStatsEvent {
+
+  @TypeName("transfer-completed-counted")
+  record CompletedCounted(String transferId) implements TransferStatsEvent {}
+
+  @TypeName("transfer-cancelled-counted")
+  record CancelledCounted(String transferId) implements TransferStatsEvent {}
+}
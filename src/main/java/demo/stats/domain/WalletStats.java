@@ -0,0 +1,164 @@
+package demo.stats.domain;
+
+import demo.common.PersistentMap;
+import demo.common.RecentIds;
+
+/**
+ * Running totals of the wallets of one stats shard, updated from wallet events.
+ *
+ * <p>Events are delivered at least once, so every update is idempotent: transactions are tracked
+ * while pending, which also gives the amount of the ones executed or cancelled (those events don't
+ * carry the type), and recently created wallets and recently finished transactions are remembered,
+ * so that an initiation redelivered after its transaction was executed or cancelled doesn't count
+ * it as pending again. This is the state of an event sourced entity, so an update only writes its
+ * event and the sets are written with the snapshots.
+ *
+ * <p>{@code totalBalance} sums the wallet balances as the wallets report them, so pending
+ * withdrawals are already deducted from it and held in {@code reservedFunds}.
+ */
+public record WalletStats(
+    long totalBalance,
+    long reservedFunds,
+    long wallets,
+    PersistentMap<String, PendingTransaction> pendingTransactions,
+    RecentIds createdWallets,
+    RecentIds finishedTransactions) {
+
+  private static final int CREATED_WALLETS_CAPACITY = 1000;
+  private static final int FINISHED_TRANSACTIONS_CAPACITY = 10000;
+
+  public WalletStats {
+    // snapshots written before finished transactions were remembered
+    if (finishedTransactions == null) {
+      finishedTransactions = RecentIds.empty(FINISHED_TRANSACTIONS_CAPACITY);
+    }
+  }
+
+  public record PendingTransaction(long amount, boolean withdraw) {}
+
+  public record Totals(long totalBalance, long reservedFunds, long wallets) {
+
+    public static final Totals ZERO = new Totals(0, 0, 0);
+
+    public Totals plus(Totals other) {
+      return new Totals(
+          totalBalance + other.totalBalance,
+          reservedFunds + other.reservedFunds,
+          wallets + other.wallets);
+    }
+  }
+
+  public static WalletStats empty() {
+    return new WalletStats(
+        0,
+        0,
+        0,
+        PersistentMap.empty(),
+        RecentIds.empty(CREATED_WALLETS_CAPACITY),
+        RecentIds.empty(FINISHED_TRANSACTIONS_CAPACITY));
+  }
+
+  public Totals totals() {
+    return new Totals(totalBalance, reservedFunds, wallets);
+  }
+
+  private static String key(String walletId, String transactionId) {
+    return walletId + "/" + transactionId;
+  }
+
+  public WalletStats applyEvent(WalletStatsEvent event) {
+    return switch (event) {
+      case WalletStatsEvent.WalletCounted evt -> walletCreated(evt.walletId());
+      case WalletStatsEvent.TransactionInitiated evt ->
+          transactionInitiated(evt.walletId(), evt.transactionId(), evt.amount(), evt.withdraw());
+      case WalletStatsEvent.TransactionExecuted evt ->
+          transactionExecuted(evt.walletId(), evt.transactionId());
+      case WalletStatsEvent.TransactionCancelled evt ->
+          transactionCancelled(evt.walletId(), evt.transactionId());
+    };
+  }
+
+  public WalletStats walletCreated(String walletId) {
+    if (createdWallets.contains(walletId)) {
+      return this;
+    }
+    return new WalletStats(
+        totalBalance,
+        reservedFunds,
+        wallets + 1,
+        pendingTransactions,
+        createdWallets.add(walletId),
+        finishedTransactions);
+  }
+
+  public WalletStats transactionInitiated(
+      String walletId, String transactionId, long amount, boolean withdraw) {
+    var key = key(walletId, transactionId);
+    if (pendingTransactions.containsKey(key) || finishedTransactions.contains(key)) {
+      return this;
+    }
+    var pending = pendingTransactions.plus(key, new PendingTransaction(amount, withdraw));
+    if (withdraw) {
+      return new WalletStats(
+          totalBalance - amount,
+          reservedFunds + amount,
+          wallets,
+          pending,
+          createdWallets,
+          finishedTransactions);
+    } else {
+      return new WalletStats(
+          totalBalance, reservedFunds, wallets, pending, createdWallets, finishedTransactions);
+    }
+  }
+
+  public WalletStats transactionExecuted(String walletId, String transactionId) {
+    var key = key(walletId, transactionId);
+    var transaction = pendingTransactions.get(key);
+    if (transaction == null || finishedTransactions.contains(key)) {
+      return this;
+    }
+    var pending = pendingTransactions.minus(key);
+    var finished = finishedTransactions.add(key);
+    if (transaction.withdraw()) {
+      return new WalletStats(
+          totalBalance,
+          reservedFunds - transaction.amount(),
+          wallets,
+          pending,
+          createdWallets,
+          finished);
+    } else {
+      return new WalletStats(
+          totalBalance + transaction.amount(),
+          reservedFunds,
+          wallets,
+          pending,
+          createdWallets,
+          finished);
+    }
+  }
+
+  public WalletStats transactionCancelled(String walletId, String transactionId) {
+    var key = key(walletId, transactionId);
+    var transaction = pendingTransactions.get(key);
+    if (transaction == null || finishedTransactions.contains(key)) {
+      return this;
+    }
+    var pending = pendingTransactions.minus(key);
+    var finished = finishedTransactions.add(key);
+    if (transaction.withdraw()) {
+      // the reserved funds go back to the balance
+      return new WalletStats(
+          totalBalance + transaction.amount(),
+          reservedFunds - transaction.amount(),
+          wallets,
+          pending,
+          createdWallets,
+          finished);
+    } else {
+      return new WalletStats(
+          totalBalance, reservedFunds, wallets, pending, createdWallets, finished);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package demo.stats.domain;
+
+import akka.javasdk.annotations.TypeName;
+
+/** A wallet event applied to the totals of a stats shard, persisted once the first time only. */
+public sealed interface WalletStatsEvent {
+
+  @TypeName("wallet-counted")
+  record WalletCounted(String walletId) implements WalletStatsEvent {}
+
+  @TypeName("transaction-initiated")
+  record TransactionInitiated(String walletId, String transactionId, long amount, boolean withdraw)
+      implements WalletStatsEvent {}
+
+  @TypeName("transaction-executed")
+  record TransactionExecuted(String walletId, String transactionId) implements WalletStatsEvent {}
+
+  @TypeName("transaction-cancelled")
+  record TransactionCancelled(String walletId, String transactionId) implements WalletStatsEvent {}
+}
@@ -0,0 +1,13 @@
+package demo.transfer.api;
+
+import java.util.List;
+
+public record BatchTransferRequest(List<Item> transfers) {
+
+  public record Item(String transferId, long amount, String from, String to) {
+
+    public TransferRequest toTransferRequest() {
+      return new TransferRequest(amount, from, to);
+    }
+  }
+}
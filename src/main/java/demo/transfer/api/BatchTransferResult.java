@@ -0,0 +1,16 @@
+package demo.transfer.api;
+
+/**
+ * Outcome of one transfer of a batch. An accepted transfer has been created and both wallets asked
+ * to take part; it completes (or times out) asynchronously, like a single transfer does.
+ */
+public record BatchTransferResult(String transferId, boolean accepted, String error) {
+
+  public static BatchTransferResult accepted(String transferId) {
+    return new BatchTransferResult(transferId, true, null);
+  }
+
+  public static BatchTransferResult failed(String transferId, String error) {
+    return new BatchTransferResult(transferId, false, error);
+  }
+}
@@ -0,0 +1,68 @@
+package demo.transfer.api;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A transfer between any number of wallets: every wallet of {@code from} pays its amount and every
+ * wallet of {@code to} receives its amount, for instance one payer to many payees.
+ */
+public record MultiPartyTransferRequest(List<Leg> from, List<Leg> to) {
+
+  public record Leg(String walletId, long amount) {}
+
+  public static MultiPartyTransferRequest of(TransferRequest request) {
+    return new MultiPartyTransferRequest(
+        List.of(new Leg(request.from(), request.amount())),
+        List.of(new Leg(request.to(), request.amount())));
+  }
+
+  public List<String> walletIds() {
+    return Stream.concat(from.stream(), to.stream()).map(Leg::walletId).toList();
+  }
+
+  /** Why the transfer can't be made, if it can't. */
+  public Optional<String> validate(int maxLegs) {
+    if (from == null || from.isEmpty() || to == null || to.isEmpty()) {
+      return Optional.of("A transfer needs at least one wallet to pay and one to receive");
+    }
+    if (Stream.concat(from.stream(), to.stream())
+        .anyMatch(leg -> leg == null || leg.walletId() == null)) {
+      return Optional.of("Every leg needs a wallet id");
+    }
+    var walletIds = walletIds();
+    if (walletIds.size() > maxLegs) {
+      return Optional.of("A transfer can have at most " + maxLegs + " legs");
+    }
+    // all legs share the transfer id, which a wallet only holds once
+    if (new HashSet<>(walletIds).size() != walletIds.size()) {
+      return Optional.of("A wallet can only take part once in a transfer");
+    }
+    if (Stream.concat(from.stream(), to.stream()).anyMatch(leg -> leg.amount() <= 0)) {
+      return Optional.of("Amounts must be positive");
+    }
+    long paid;
+    long received;
+    try {
+      paid = total(from);
+      received = total(to);
+    } catch (ArithmeticException e) {
+      return Optional.of("Amounts add up to more than a wallet can hold");
+    }
+    if (paid != received) {
+      return Optional.of(
+          "Amounts paid [" + paid + "] and received [" + received + "] must be the same");
+    }
+    return Optional.empty();
+  }
+
+  private static long total(List<Leg> legs) {
+    var total = 0L;
+    for (var leg : legs) {
+      total = Math.addExact(total, leg.amount());
+    }
+    return total;
+  }
+}
@@ -7,16 +7,27 @@ import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
 import akka.javasdk.annotations.http.Post;
 import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.HttpException;
 import akka.javasdk.http.HttpResponses;
+import akka.stream.javadsl.Source;
+import com.typesafe.config.Config;
+import demo.common.NdJson;
 import demo.transfer.application.TransferMediatorEntity;
 import demo.transfer.application.TransferWorkflow;
 import demo.transfer.domain.Create;
 import demo.transfer.domain.Transfer;
 import demo.transfer.domain.TransferStatus;
 import demo.transfer.domain.TransferWorkflowState;
+import demo.wallet.application.DepositBatcher;
 import demo.wallet.application.WalletEntity;
+import demo.wallet.application.WalletShards;
 import demo.wallet.domain.DepositCommand;
 import demo.wallet.domain.WithdrawCommand;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
 
 // Opened up for access from the public internet to make the service easy to try out.
 // For actual services meant for production this must be carefully considered and often set more
@@ -26,9 +37,21 @@ import demo.wallet.domain.WithdrawCommand;
 public class TransferEndpoint {
 
   private final ComponentClient componentClient;
+  private final WalletShards walletShards;
+  private final DepositBatcher depositBatcher;
+  private final int batchParallelism;
+  private final int maxLegs;
 
-  public TransferEndpoint(ComponentClient componentClient) {
+  public TransferEndpoint(
+      ComponentClient componentClient,
+      Config config,
+      WalletShards walletShards,
+      DepositBatcher depositBatcher) {
     this.componentClient = componentClient;
+    this.walletShards = walletShards;
+    this.depositBatcher = depositBatcher;
+    this.batchParallelism = config.getInt("demo.transfer.batch.parallelism");
+    this.maxLegs = config.getInt("demo.transfer.multi-party.max-legs");
   }
 
   @Get("/{transferId}")
@@ -41,30 +64,176 @@ public class TransferEndpoint {
   }
 
   @Post("/{transferId}")
-  public HttpResponse transfer(String transferId, TransferRequest request) {
+  public CompletionStage<HttpResponse> transfer(String transferId, TransferRequest request) {
+    return startTransfer(transferId, request).thenApply(__ -> HttpResponses.ok(transferId));
+  }
+
+  /**
+   * Starts a transfer between any number of wallets, for instance one payer to many payees. It is a
+   * single mediator transfer, completed or cancelled as a whole.
+   */
+  @Post("/{transferId}/multi-party")
+  public CompletionStage<HttpResponse> multiPartyTransfer(
+      String transferId, MultiPartyTransferRequest request) {
+    return startTransfer(transferId, request).thenApply(__ -> HttpResponses.ok(transferId));
+  }
+
+  /**
+   * Starts every transfer of the batch, at most {@code demo.transfer.batch.parallelism} at a time,
+   * and streams one {@link BatchTransferResult} per transfer as newline-delimited JSON, in
+   * completion order.
+   */
+  @Post("/batch")
+  public HttpResponse transferBatch(BatchTransferRequest request) {
+    if (request.transfers() == null || request.transfers().stream().anyMatch(Objects::isNull)) {
+      throw HttpException.badRequest("transfers must be a list of transfers");
+    }
+    var results =
+        Source.from(request.transfers()).mapAsyncUnordered(batchParallelism, this::transferItem);
+    return NdJson.response(results);
+  }
+
+  /**
+   * Starts one transfer of the batch. The response is already under way, so nothing here may throw:
+   * a failure is reported for the item alone, and the rest of the batch goes on.
+   */
+  private CompletionStage<BatchTransferResult> transferItem(BatchTransferRequest.Item item) {
+    if (item.transferId() == null || item.transferId().isBlank()) {
+      return CompletableFuture.completedFuture(
+          BatchTransferResult.failed(item.transferId(), "A transfer needs a transfer id"));
+    }
+    var request = MultiPartyTransferRequest.of(item.toTransferRequest());
+    var invalid = request.validate(maxLegs);
+    if (invalid.isPresent()) {
+      return CompletableFuture.completedFuture(
+          BatchTransferResult.failed(item.transferId(), invalid.get()));
+    }
+    CompletionStage<Done> started;
+    try {
+      started = startTransfer(item.transferId(), request);
+    } catch (RuntimeException e) {
+      started = CompletableFuture.failedFuture(e);
+    }
+    return started.handle(
+        (__, error) -> {
+          if (error == null) {
+            return BatchTransferResult.accepted(item.transferId());
+          } else {
+            var cause = error instanceof CompletionException ? error.getCause() : error;
+            return BatchTransferResult.failed(item.transferId(), cause.getMessage());
+          }
+        });
+  }
 
-    var createTxCmd = Create.of(request.from(), request.to());
+  private CompletionStage<Done> startTransfer(String transferId, TransferRequest request) {
+    return startTransfer(transferId, MultiPartyTransferRequest.of(request));
+  }
+
+  /**
+   * Creates the transfer, then asks every paying wallet to withdraw and every receiving wallet to
+   * deposit. The wallet calls only need the transfer to exist, so they are all issued concurrently.
+   * Deposits go through the {@link DepositBatcher}, like those of the wallet endpoint. If any
+   * fails, the transfer never gets all its participants and is cancelled by its timeout, which also
+   * releases whatever the other wallets have reserved.
+   *
+   * <p>Every transfer is validated here, whichever endpoint it comes from: a wallet paying itself,
+   * for instance, would otherwise make a transfer with a single participant.
+   */
+  private CompletionStage<Done> startTransfer(
+      String transferId, MultiPartyTransferRequest request) {
+    var error = request.validate(maxLegs);
+    if (error.isPresent()) {
+      throw HttpException.badRequest(error.get());
+    }
     var prefixedTransferId = TransferId.prefixForMediator(transferId);
 
-    // first create a transfer
-    componentClient
+    return routeToShards(request, prefixedTransferId)
+        .thenCompose(routed -> createAndCallWallets(prefixedTransferId, routed));
+  }
+
+  /**
+   * The legs of the request with every sharded wallet receiving funds replaced by its sub-wallet
+   * for the transfer, as a deposit to it would be. Funds can only be withdrawn from a sharded
+   * wallet through the wallet endpoint, which plans the legs over its sub-wallets.
+   */
+  private CompletionStage<MultiPartyTransferRequest> routeToShards(
+      MultiPartyTransferRequest request, String prefixedTransferId) {
+    var from =
+        request.from().stream()
+            .map(
+                leg ->
+                    walletShards
+                        .findAsync(leg.walletId())
+                        .thenApply(
+                            sharded -> {
+                              if (sharded.isPresent()) {
+                                throw HttpException.badRequest(
+                                    "Wallet ["
+                                        + leg.walletId()
+                                        + "] is sharded, it can only be withdrawn from directly");
+                              }
+                              return leg;
+                            })
+                        .toCompletableFuture())
+            .toList();
+    var to =
+        request.to().stream()
+            .map(
+                leg ->
+                    walletShards
+                        .findAsync(leg.walletId())
+                        .thenApply(
+                            sharded ->
+                                sharded
+                                    .map(
+                                        layout ->
+                                            new MultiPartyTransferRequest.Leg(
+                                                layout.shardFor(prefixedTransferId), leg.amount()))
+                                    .orElse(leg))
+                        .toCompletableFuture())
+            .toList();
+    var all = Stream.concat(from.stream(), to.stream()).toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(all)
+        .thenApply(
+            __ ->
+                new MultiPartyTransferRequest(
+                    from.stream().map(CompletableFuture::join).toList(),
+                    to.stream().map(CompletableFuture::join).toList()));
+  }
+
+  private CompletionStage<Done> createAndCallWallets(
+      String prefixedTransferId, MultiPartyTransferRequest request) {
+    var createTxCmd = new Create(request.walletIds());
+    return componentClient
         .forEventSourcedEntity(prefixedTransferId)
         .method(TransferMediatorEntity::init)
-        .invoke(createTxCmd);
-
-    // then withdraw from the sender
-    componentClient
-        .forEventSourcedEntity(request.from())
-        .method(WalletEntity::withdraw)
-        .invoke(new WithdrawCommand(request.amount(), prefixedTransferId));
+        .invokeAsync(createTxCmd)
+        .thenCompose(
+            __ -> {
+              var withdrawals =
+                  request.from().stream()
+                      .map(
+                          leg ->
+                              componentClient
+                                  .forEventSourcedEntity(leg.walletId())
+                                  .method(WalletEntity::withdraw)
+                                  .invokeAsync(
+                                      new WithdrawCommand(leg.amount(), prefixedTransferId))
+                                  .toCompletableFuture());
 
-    // then deposit to the receiver
-    componentClient
-        .forEventSourcedEntity(request.to())
-        .method(WalletEntity::deposit)
-        .invoke(new DepositCommand(request.amount(), prefixedTransferId));
+              var deposits =
+                  request.to().stream()
+                      .map(
+                          leg ->
+                              depositBatcher
+                                  .deposit(
+                                      leg.walletId(),
+                                      new DepositCommand(leg.amount(), prefixedTransferId))
+                                  .toCompletableFuture());
 
-    return HttpResponses.ok(transferId);
+              var calls = Stream.concat(withdrawals, deposits).toArray(CompletableFuture[]::new);
+              return CompletableFuture.allOf(calls).thenApply(called -> Done.getInstance());
+            });
   }
 
   @Post("/{transferId}/workflow")
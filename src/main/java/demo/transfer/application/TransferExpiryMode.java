@@ -0,0 +1,21 @@
+package demo.transfer.application;
+
+import com.typesafe.config.Config;
+
+/**
+ * How pending mediator transfers are cancelled once they time out, set by {@code
+ * demo.transfer.expiry.mode}.
+ */
+public enum TransferExpiryMode {
+  /** A timer per transfer, started when it is created and cancelled once it is initiated. */
+  TIMERS,
+  /**
+   * Pending transfers are indexed by creation time in {@link TransferExpiryView} and a single
+   * recurring {@link TransferExpirySweeper} cancels those that are late, a batch at a time.
+   */
+  SWEEPER;
+
+  public static TransferExpiryMode fromConfig(Config config) {
+    return valueOf(config.getString("demo.transfer.expiry.mode").toUpperCase());
+  }
+}
@@ -0,0 +1,110 @@
+package demo.transfer.application;
+
+import akka.Done;
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.timedaction.TimedAction;
+import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import demo.common.Metrics;
+import demo.transfer.domain.TransferType;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cancels the mediator transfers still pending after their timeout, in {@link
+ * TransferExpiryMode#SWEEPER} mode.
+ *
+ * <p>Every sweep reads at most {@code demo.transfer.expiry.sweeper.batch-size} late transfers of
+ * each {@link TransferType} from {@link TransferExpiryView}, late by the {@link TransferTimeouts
+ * timeout} of their type, cancels them concurrently and schedules the next sweep, after {@code
+ * interval}, or after {@code min-delay} only if the batch was full. That is one timer write per
+ * sweep instead of two per transfer. A cancelled transfer may be read again until the view has seen
+ * its cancellation, which cancelling again ignores; {@code min-delay} gives the view that time
+ * rather than sweeping the same rows again in a tight loop. The first sweep is scheduled by the
+ * service setup.
+ */
+@ComponentId("transfer-expiry-sweeper")
+public class TransferExpirySweeper extends TimedAction {
+
+  private static final String TIMER_NAME = "transfer-expiry-sweep";
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final ComponentClient componentClient;
+  private final TimerScheduler timerScheduler;
+  private final Duration interval;
+  private final Duration minDelay;
+  private final int batchSize;
+  private final TransferTimeouts timeouts;
+
+  public TransferExpirySweeper(
+      ComponentClient componentClient,
+      TimerScheduler timerScheduler,
+      Config config,
+      TransferTimeouts timeouts) {
+    this.componentClient = componentClient;
+    this.timerScheduler = timerScheduler;
+    this.interval = config.getDuration("demo.transfer.expiry.sweeper.interval");
+    this.minDelay = config.getDuration("demo.transfer.expiry.sweeper.min-delay");
+    this.batchSize = config.getInt("demo.transfer.expiry.sweeper.batch-size");
+    this.timeouts = timeouts;
+  }
+
+  public Effect sweep() {
+    var now = Instant.now();
+    var sweeps =
+        Arrays.stream(TransferType.values())
+            .map(type -> sweepLate(type, now.minus(timeouts.timeoutOf(type))).toCompletableFuture())
+            .toList();
+    var swept =
+        CompletableFuture.allOf(sweeps.toArray(CompletableFuture[]::new))
+            .thenCompose(
+                __ -> {
+                  var full = sweeps.stream().anyMatch(CompletableFuture::join);
+                  return scheduleNext(componentClient, timerScheduler, full ? minDelay : interval);
+                });
+    return effects().asyncDone(swept);
+  }
+
+  /** Cancels the late transfers of the given type, completes with whether the batch was full. */
+  private CompletionStage<Boolean> sweepLate(TransferType type, Instant createdBefore) {
+    return componentClient
+        .forView()
+        .method(TransferExpiryView::getCreatedBefore)
+        .invokeAsync(new TransferExpiryView.CreatedBefore(type, createdBefore, batchSize))
+        .thenCompose(
+            late -> {
+              var cancellations =
+                  late.transfers().stream()
+                      .map(
+                          transfer ->
+                              componentClient
+                                  .forEventSourcedEntity(transfer.transferId())
+                                  .method(TransferMediatorEntity::cancel)
+                                  .invokeAsync()
+                                  .toCompletableFuture())
+                      .toArray(CompletableFuture[]::new);
+              var count = cancellations.length;
+              if (count > 0) {
+                logger.info("Cancelling [{}] late transfers of type [{}]", count, type.id());
+              }
+              return CompletableFuture.allOf(cancellations).thenApply(__ -> count == batchSize);
+            });
+  }
+
+  /** Schedules the next sweep, replacing the one scheduled if any. */
+  public static CompletionStage<Done> scheduleNext(
+      ComponentClient componentClient, TimerScheduler timerScheduler, Duration delay) {
+    Metrics.global().increment("transfer-expiry.timer-ops");
+    return timerScheduler.startSingleTimer(
+        TIMER_NAME,
+        delay,
+        componentClient.forTimedAction().method(TransferExpirySweeper::sweep).deferred());
+  }
+}
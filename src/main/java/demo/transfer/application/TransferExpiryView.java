@@ -0,0 +1,72 @@
+package demo.transfer.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.annotations.Query;
+import akka.javasdk.view.TableUpdater;
+import akka.javasdk.view.View;
+import demo.transfer.domain.TransferEvent;
+import demo.transfer.domain.TransferType;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Mediator transfers not initiated yet, by type and creation time: the deadline index read by
+ * {@link TransferExpirySweeper}. A transfer leaves the index once it is initiated, completed or
+ * cancelled.
+ */
+@ComponentId("transfer-expiry-view")
+public class TransferExpiryView extends View {
+
+  public record PendingTransfer(String transferId, TransferType type, Instant createdAt) {}
+
+  public record PendingTransfers(List<PendingTransfer> transfers) {}
+
+  public record CreatedBefore(TransferType type, Instant createdBefore, int limit) {}
+
+  @Query(
+      """
+      SELECT * AS transfers FROM pending_transfers
+      WHERE type = :type AND createdAt <= :createdBefore
+      ORDER BY createdAt
+      LIMIT :limit
+      """)
+  public QueryEffect<PendingTransfers> getCreatedBefore(CreatedBefore query) {
+    return queryResult();
+  }
+
+  @Consume.FromEventSourcedEntity(TransferMediatorEntity.class)
+  public static class PendingTransfersByCreation extends TableUpdater<PendingTransfer> {
+
+    public Effect<PendingTransfer> onEvent(TransferEvent event) {
+      if (updateContext().eventSubject().isEmpty()) {
+        return effects().ignore();
+      }
+
+      var transferId = updateContext().eventSubject().get();
+      return switch (event) {
+        case TransferEvent.Created evt ->
+            effects()
+                .updateRow(
+                    new PendingTransfer(
+                        transferId, TransferType.of(evt.participantIds()), eventTime()));
+
+        case TransferEvent.Initiated __ -> effects().deleteRow();
+        case TransferEvent.Completed __ -> effects().deleteRow();
+        case TransferEvent.Cancelled __ -> effects().deleteRow();
+
+        default -> effects().ignore();
+      };
+    }
+
+    private Instant eventTime() {
+      return updateContext()
+          .metadata()
+          .asCloudEvent()
+          .time()
+          .map(ZonedDateTime::toInstant)
+          .orElseGet(Instant::now);
+    }
+  }
+}
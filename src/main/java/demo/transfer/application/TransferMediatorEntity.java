@@ -4,12 +4,13 @@ import akka.Done;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.eventsourcedentity.EventSourcedEntity;
 import akka.javasdk.eventsourcedentity.EventSourcedEntityContext;
+import demo.common.Metrics;
 import demo.transfer.api.TransferId;
 import demo.transfer.domain.Create;
-import demo.transfer.domain.Participant;
 import demo.transfer.domain.TransferEvent;
 import demo.transfer.domain.TransferState;
 import demo.transfer.domain.TransferStatus;
+import java.util.HashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,12 +37,15 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
       return effects().error("Transfer [" + transferId + "] is not a valid mediator id");
     }
 
+    if (new HashSet<>(cmd.participants()).size() != cmd.participants().size()) {
+      return effects().error("A wallet can only take part once in transfer [" + transferId + "]");
+    }
+
     if (currentState() == null) {
       logger.info("Creating transfer: [{}] for [{}]", transferId, cmd);
 
-      var participants = cmd.participants().stream().map(Participant::new).toList();
       return effects()
-          .persist(new TransferEvent.Created(transferId, participants))
+          .persist(new TransferEvent.Created(cmd.participants()))
           .thenReply(TransferStatus::of);
 
     } else if (currentState().isCancelled()) {
@@ -70,7 +74,7 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
           "Joining after cancelling: transfer [{}], participant [{}]", transferId, participantId);
       return doneEffect;
 
-    } else if (currentState().participants().containsKey(participantId)) {
+    } else if (currentState().isParticipant(participantId)) {
 
       if (currentState().hasJoined(participantId)) {
         logger.info(
@@ -78,11 +82,12 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
             transferId,
             participantId);
         // just ignore if already joined
+        Metrics.global().increment("transfers.duplicate-joins-ignored");
         return doneEffect;
 
       } else {
 
-        var joinedEvent = new TransferEvent.ParticipantJoined(transferId, participantId);
+        var joinedEvent = new TransferEvent.ParticipantJoined(participantId);
         logger.info(
             "Participant joined: transfer [{}], participant [{}]", transferId, participantId);
         // if last to join, we should also mark the transfer as initiated
@@ -90,7 +95,7 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
           logger.info("All participants joined: transfer [{}]", transferId);
 
           var allParticipantsIds = currentState().allParticipantsIds();
-          var initiatedEvent = new TransferEvent.Initiated(transferId, allParticipantsIds);
+          var initiatedEvent = new TransferEvent.Initiated(allParticipantsIds);
 
           return effects().persist(joinedEvent, initiatedEvent).thenReply(__ -> Done.getInstance());
 
@@ -113,9 +118,8 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
           participantId);
       return doneEffect;
 
-    } else if (currentState().participants().containsKey(participantId)) {
+    } else if (currentState().isParticipant(participantId)) {
 
-      var participant = currentState().participants().get(participantId);
       if (currentState().hasExecuted(participantId)) {
         logger.info("Transfer [{}]: participant [{}] already executed", transferId, participantId);
         // just ignore if already joined
@@ -125,13 +129,13 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
 
         logger.info("Transfer [{}]: participant [{}] executed", transferId, participantId);
 
-        var executedEvent = new TransferEvent.ParticipantExecuted(transferId, participant.id());
+        var executedEvent = new TransferEvent.ParticipantExecuted(participantId);
         // if last to join, we should also mark the transfer as completed
         if (currentState().isLastToExecute(participantId)) {
           logger.info("Transfer [{}]: all participants executed", transferId);
 
           var allParticipants = currentState().allParticipantsIds();
-          var completedEvent = new TransferEvent.Completed(transferId, allParticipants);
+          var completedEvent = new TransferEvent.Completed(allParticipants);
 
           return effects()
               .persist(executedEvent, completedEvent)
@@ -154,7 +158,7 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
     } else if (currentState().isPending()) {
       var allParticipants = currentState().allParticipantsIds();
       return effects()
-          .persist(new TransferEvent.Cancelled(transferId, allParticipants))
+          .persist(new TransferEvent.Cancelled(allParticipants))
           .thenReply(__ -> Done.getInstance());
     } else {
       logger.info(
@@ -169,7 +173,7 @@ public class TransferMediatorEntity extends EventSourcedEntity<TransferState, Tr
   public TransferState applyEvent(TransferEvent event) {
     return switch (event) {
       case TransferEvent.Created created ->
-          new TransferState(created.transferId(), created.participants());
+          TransferState.created(transferId, created.participantIds());
 
       case TransferEvent.ParticipantJoined evt ->
           currentState().participantJoined(evt.participantId());
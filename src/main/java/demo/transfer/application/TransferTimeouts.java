@@ -0,0 +1,117 @@
+package demo.transfer.application;
+
+import com.typesafe.config.Config;
+import demo.common.Metrics;
+import demo.transfer.application.consumers.TransferMetricsConsumer;
+import demo.transfer.domain.TransferType;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How long a mediator transfer may take to be initiated before it is cancelled, configured per
+ * {@link TransferType} under {@code demo.transfer.timeout}.
+ *
+ * <p>When adaptive, the timeout of a type follows the p99 time from created to initiated of the
+ * transfers of that type seen by this service instance over the last {@link Metrics#RECENT_WINDOW},
+ * times {@code factor}, kept within {@code min} and {@code max}. Only transfers actually initiated
+ * are counted: most transfers cancelled before that were refused by a wallet, for lack of funds for
+ * instance, and say nothing of how long joining takes. The configured timeout applies until {@code
+ * min-samples} transfers of the type have been seen. A {@code min} below the configured timeout
+ * lets adaptive mode shorten it as well as lengthen it.
+ *
+ * <p>The derived timeout is kept for {@code refresh-interval} rather than computed for every
+ * transfer, and each one is at most {@code max-growth} times the one it follows, starting from the
+ * configured timeout, so that a burst of slow transfers raises it step by step. One instance is
+ * shared by the components of the service, provided by the service setup.
+ */
+public final class TransferTimeouts {
+
+  private final Map<TransferType, Duration> configured;
+  private final boolean adaptive;
+  private final double factor;
+  private final Duration min;
+  private final Duration max;
+  private final double maxGrowth;
+  private final long minSamples;
+  private final long refreshIntervalNanos;
+  private final Metrics metrics;
+  private final Map<TransferType, Derived> derived = new ConcurrentHashMap<>();
+
+  private record Derived(Duration timeout, long refreshAtNanos) {}
+
+  public TransferTimeouts(
+      Map<TransferType, Duration> configured,
+      boolean adaptive,
+      double factor,
+      Duration min,
+      Duration max,
+      double maxGrowth,
+      long minSamples,
+      Duration refreshInterval,
+      Metrics metrics) {
+    this.configured = configured;
+    this.adaptive = adaptive;
+    this.factor = factor;
+    this.min = min;
+    this.max = max;
+    this.maxGrowth = maxGrowth;
+    this.minSamples = minSamples;
+    this.refreshIntervalNanos = refreshInterval.toNanos();
+    this.metrics = metrics;
+  }
+
+  public static TransferTimeouts fromConfig(Config config) {
+    var timeout = config.getConfig("demo.transfer.timeout");
+    var configured = new EnumMap<TransferType, Duration>(TransferType.class);
+    for (var type : TransferType.values()) {
+      configured.put(type, timeout.getDuration(type.id()));
+    }
+    var adaptive = timeout.getConfig("adaptive");
+    return new TransferTimeouts(
+        configured,
+        adaptive.getBoolean("enabled"),
+        adaptive.getDouble("factor"),
+        adaptive.getDuration("min"),
+        adaptive.getDuration("max"),
+        adaptive.getDouble("max-growth"),
+        adaptive.getLong("min-samples"),
+        adaptive.getDuration("refresh-interval"),
+        Metrics.global());
+  }
+
+  public Duration timeoutOf(TransferType type) {
+    if (!adaptive) {
+      return configured.get(type);
+    }
+    var now = System.nanoTime();
+    var current = derived.get(type);
+    if (current == null || now - current.refreshAtNanos() >= 0) {
+      var previous = current == null ? configured.get(type) : current.timeout();
+      current = new Derived(derive(type, previous), now + refreshIntervalNanos);
+      derived.put(type, current);
+    }
+    return current.timeout();
+  }
+
+  private Duration derive(TransferType type, Duration previous) {
+    var largest = Duration.ofMillis((long) Math.ceil(previous.toMillis() * maxGrowth));
+    return metrics
+        .recentLatency(TransferMetricsConsumer.createdToInitiated(type))
+        .filter(latency -> latency.count() >= minSamples)
+        .map(latency -> Duration.ofMillis((long) Math.ceil(latency.p99() * factor)))
+        .map(this::withinBounds)
+        .map(timeout -> timeout.compareTo(largest) > 0 ? largest : timeout)
+        .orElse(configured.get(type));
+  }
+
+  private Duration withinBounds(Duration timeout) {
+    if (timeout.compareTo(min) < 0) {
+      return min;
+    } else if (timeout.compareTo(max) > 0) {
+      return max;
+    }
+    return timeout;
+  }
+}
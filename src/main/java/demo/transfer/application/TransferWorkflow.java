@@ -5,12 +5,17 @@ import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.workflow.Workflow;
 import akka.javasdk.workflow.WorkflowContext;
+import com.typesafe.config.Config;
 import demo.transfer.api.TransferId;
 import demo.transfer.domain.Transfer;
 import demo.transfer.domain.TransferWorkflowState;
+import demo.wallet.application.DepositBatcher;
 import demo.wallet.application.WalletEntity;
 import demo.wallet.domain.DepositCommand;
 import demo.wallet.domain.WithdrawCommand;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,7 +24,9 @@ public class TransferWorkflow extends Workflow<TransferWorkflowState> {
 
   private final Logger logger = LoggerFactory.getLogger(getClass());
   private final ComponentClient componentClient;
+  private final DepositBatcher depositBatcher;
   private final String transferId;
+  private final boolean concurrentWalletCalls;
 
   public static final String prefix = "tw:";
 
@@ -32,9 +39,16 @@ public class TransferWorkflow extends Workflow<TransferWorkflowState> {
   private final String EXECUTE = "execute";
   private final String CANCEL = "cancel";
 
-  public TransferWorkflow(WorkflowContext context, ComponentClient componentClient) {
+  public TransferWorkflow(
+      WorkflowContext context,
+      ComponentClient componentClient,
+      Config config,
+      DepositBatcher depositBatcher) {
     this.componentClient = componentClient;
+    this.depositBatcher = depositBatcher;
     this.transferId = context.workflowId();
+    this.concurrentWalletCalls =
+        config.getBoolean("demo.transfer.workflow.concurrent-wallet-calls");
   }
 
   public Effect<TransferWorkflowState> getState() {
@@ -65,6 +79,9 @@ public class TransferWorkflow extends Workflow<TransferWorkflowState> {
 
   @Override
   public WorkflowDef<TransferWorkflowState> definition() {
+    // Initiating can fail over to CANCEL: a wallet that did not join yet just ignores the
+    // cancellation. Executing can't, as a transaction already executed by one wallet can no longer
+    // be cancelled, so it's retried until both wallets executed.
     return workflow()
         .addStep(initiateTransfer(), maxRetries(3).failoverTo(CANCEL))
         .addStep(executeStep())
@@ -76,23 +93,31 @@ public class TransferWorkflow extends Workflow<TransferWorkflowState> {
         .call(
             () -> {
               var amount = currentState().transfer().amount();
-
               var fromWallet = currentState().transfer().from();
-              logger.info(
-                  "Transfer [{}]: withdrawing [{}] to wallet [{}]", transferId, amount, fromWallet);
-              componentClient
-                  .forEventSourcedEntity(fromWallet)
-                  .method(WalletEntity::withdraw)
-                  .invoke(new WithdrawCommand(amount, transferId));
-
               var toWallet = currentState().transfer().to();
-              logger.info(
-                  "Transfer [{}]: depositing [{}] to wallet [{}]", transferId, amount, toWallet);
 
-              componentClient
-                  .forEventSourcedEntity(toWallet)
-                  .method(WalletEntity::deposit)
-                  .invoke(new DepositCommand(amount, transferId));
+              callBothWallets(
+                  () -> {
+                    logger.info(
+                        "Transfer [{}]: withdrawing [{}] from wallet [{}]",
+                        transferId,
+                        amount,
+                        fromWallet);
+                    return componentClient
+                        .forEventSourcedEntity(fromWallet)
+                        .method(WalletEntity::withdraw)
+                        .invokeAsync(new WithdrawCommand(amount, transferId));
+                  },
+                  () -> {
+                    logger.info(
+                        "Transfer [{}]: depositing [{}] to wallet [{}]",
+                        transferId,
+                        amount,
+                        toWallet);
+                    // coalesced with the other deposits to the wallet, a failed batch fails the
+                    // step
+                    return depositBatcher.deposit(toWallet, new DepositCommand(amount, transferId));
+                  });
             })
         .andThen(() -> effects().updateState(currentState().initiated()).transitionTo(EXECUTE));
   }
@@ -102,10 +127,8 @@ public class TransferWorkflow extends Workflow<TransferWorkflowState> {
         .call(
             () -> {
               var fromWallet = currentState().transfer().from();
-              executeTransfer(fromWallet);
-
               var toWallet = currentState().transfer().to();
-              executeTransfer(toWallet);
+              callBothWallets(() -> executeTransfer(fromWallet), () -> executeTransfer(toWallet));
             })
         .andThen(() -> effects().updateState(currentState().completed()).end());
   }
@@ -117,27 +140,43 @@ public class TransferWorkflow extends Workflow<TransferWorkflowState> {
               logger.info("Cancelling transfer workflow [{}]", transferId);
 
               var fromWallet = currentState().transfer().from();
-              cancelTransfer(fromWallet);
-
               var toWallet = currentState().transfer().to();
-              cancelTransfer(toWallet);
+              callBothWallets(() -> cancelTransfer(fromWallet), () -> cancelTransfer(toWallet));
             })
         .andThen(() -> effects().updateState(currentState().cancelled()).end());
   }
 
-  private Done cancelTransfer(String walletId) {
+  /**
+   * Calls the sender's wallet, then the receiver's one, or both at once when {@code
+   * demo.transfer.workflow.concurrent-wallet-calls} is enabled. Either way it returns only once
+   * both calls are over and throws if any of them failed, so the step fails (and is retried or
+   * failed over) exactly as with sequential calls.
+   */
+  private void callBothWallets(
+      Supplier<CompletionStage<?>> fromWalletCall, Supplier<CompletionStage<?>> toWalletCall) {
+    if (concurrentWalletCalls) {
+      var fromWallet = fromWalletCall.get().toCompletableFuture();
+      var toWallet = toWalletCall.get().toCompletableFuture();
+      CompletableFuture.allOf(fromWallet, toWallet).join();
+    } else {
+      fromWalletCall.get().toCompletableFuture().join();
+      toWalletCall.get().toCompletableFuture().join();
+    }
+  }
+
+  private CompletionStage<Done> cancelTransfer(String walletId) {
     logger.info("Transfer [{}]: cancelling transaction on wallet [{}]", transferId, walletId);
     return componentClient
         .forEventSourcedEntity(walletId)
         .method(WalletEntity::cancelTransaction)
-        .invoke(transferId);
+        .invokeAsync(transferId);
   }
 
-  private Done executeTransfer(String walletId) {
+  private CompletionStage<Done> executeTransfer(String walletId) {
     logger.info("Transfer [{}]: executing transaction on wallet [{}]", transferId, walletId);
     return componentClient
         .forEventSourcedEntity(walletId)
         .method(WalletEntity::executeTransaction)
-        .invoke(transferId);
+        .invokeAsync(transferId);
   }
 }
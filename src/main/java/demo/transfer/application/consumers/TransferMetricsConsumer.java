@@ -0,0 +1,112 @@
+package demo.transfer.application.consumers;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import demo.common.Metrics;
+import demo.transfer.application.TransferMediatorEntity;
+import demo.transfer.domain.TransferEvent;
+import demo.transfer.domain.TransferType;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records how long mediator transfers spend in each stage of their lifecycle, from the time their
+ * events were persisted: created to initiated (all participants joined), initiated to completed
+ * (all participants executed) and created to completed or cancelled. Created to initiated is also
+ * recorded per {@link TransferType} over a recent window, for the adaptive transfer timeouts.
+ *
+ * <p>Start times of the transfers in flight are only kept in memory, so transfers created before
+ * this instance started are counted but not timed. At most {@value #MAX_IN_FLIGHT} of them are
+ * kept, the oldest one being dropped first, since a transfer whose last event is consumed by
+ * another instance, after a rebalance of the consumer, would otherwise stay forever.
+ */
+@ComponentId("transfer-metrics")
+@Consume.FromEventSourcedEntity(TransferMediatorEntity.class)
+public class TransferMetricsConsumer extends Consumer {
+
+  private record Started(TransferType type, Instant created, Instant initiated) {}
+
+  private static final int MAX_IN_FLIGHT = 100_000;
+
+  private static final Map<String, Started> inFlight =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Started> eldest) {
+              if (size() > MAX_IN_FLIGHT) {
+                Metrics.global().increment("transfer-metrics.in-flight-evictions");
+                return true;
+              }
+              return false;
+            }
+          });
+
+  private final Metrics metrics = Metrics.global();
+
+  /** Histogram of the time from created to initiated of the transfers of the given type. */
+  public static String createdToInitiated(TransferType type) {
+    return "transfer.created-to-initiated." + type.id();
+  }
+
+  public Effect onEvent(TransferEvent event) {
+    if (messageContext().eventSubject().isEmpty()) {
+      return effects().ignore();
+    }
+
+    var transferId = messageContext().eventSubject().get();
+    var time = eventTime();
+    switch (event) {
+      case TransferEvent.Created evt -> {
+        metrics.increment("transfers.created");
+        inFlight.put(transferId, new Started(TransferType.of(evt.participantIds()), time, null));
+      }
+      case TransferEvent.Initiated evt -> {
+        metrics.increment("transfers.initiated");
+        var started = inFlight.get(transferId);
+        if (started != null) {
+          var createdToInitiated = Duration.between(started.created(), time);
+          metrics.record("transfer.created-to-initiated", createdToInitiated);
+          metrics.recordRecent(createdToInitiated(started.type()), createdToInitiated);
+          inFlight.put(transferId, new Started(started.type(), started.created(), time));
+        }
+      }
+      case TransferEvent.Completed evt -> {
+        metrics.increment("transfers.completed");
+        var started = inFlight.remove(transferId);
+        if (started != null) {
+          if (started.initiated() != null) {
+            metrics.record(
+                "transfer.initiated-to-completed", Duration.between(started.initiated(), time));
+          }
+          metrics.record(
+              "transfer.created-to-completed", Duration.between(started.created(), time));
+        }
+      }
+      case TransferEvent.Cancelled evt -> {
+        // mediator transfers are only ever cancelled by their timeout timer
+        metrics.increment("transfers.cancelled-by-timeout");
+        var started = inFlight.remove(transferId);
+        if (started != null) {
+          metrics.record(
+              "transfer.created-to-cancelled", Duration.between(started.created(), time));
+        }
+      }
+      default -> {}
+    }
+    return effects().done();
+  }
+
+  private Instant eventTime() {
+    return messageContext()
+        .metadata()
+        .asCloudEvent()
+        .time()
+        .map(ZonedDateTime::toInstant)
+        .orElseGet(Instant::now);
+  }
+}
@@ -5,23 +5,41 @@ import akka.javasdk.annotations.Consume;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.consumer.Consumer;
 import akka.javasdk.timer.TimerScheduler;
+import com.typesafe.config.Config;
+import demo.common.Metrics;
+import demo.transfer.application.TransferExpiryMode;
 import demo.transfer.application.TransferMediatorEntity;
+import demo.transfer.application.TransferTimeouts;
 import demo.transfer.domain.TransferEvent;
-import java.time.Duration;
+import demo.transfer.domain.TransferType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Cancels mediator transfers not initiated within their {@link TransferTimeouts timeout}, with a
+ * timer per transfer, in {@link TransferExpiryMode#TIMERS} mode. Every timer started or cancelled
+ * is counted as a {@code transfer-expiry.timer-ops} in {@link Metrics}.
+ */
 @ComponentId("transaction-timeout")
 @Consume.FromEventSourcedEntity(TransferMediatorEntity.class)
 public class TransferTimeoutConsumer extends Consumer {
 
   private final ComponentClient componentClient;
   private final TimerScheduler timerScheduler;
+  private final TransferExpiryMode mode;
+  private final TransferTimeouts timeouts;
   private final Logger logger = LoggerFactory.getLogger(getClass());
+  private final Metrics metrics = Metrics.global();
 
-  public TransferTimeoutConsumer(ComponentClient componentClient, TimerScheduler timerScheduler) {
+  public TransferTimeoutConsumer(
+      ComponentClient componentClient,
+      TimerScheduler timerScheduler,
+      Config config,
+      TransferTimeouts timeouts) {
     this.componentClient = componentClient;
     this.timerScheduler = timerScheduler;
+    this.mode = TransferExpiryMode.fromConfig(config);
+    this.timeouts = timeouts;
   }
 
   private String genTimerId(String transferId) {
@@ -29,26 +47,36 @@ public class TransferTimeoutConsumer extends Consumer {
   }
 
   public Effect onEvent(TransferEvent event) {
+    if (mode != TransferExpiryMode.TIMERS || messageContext().eventSubject().isEmpty()) {
+      return effects().ignore();
+    }
+
+    var transferId = messageContext().eventSubject().get();
     return switch (event) {
       case TransferEvent.Created evt -> {
-        String timerId = genTimerId(evt.transferId());
+        String timerId = genTimerId(transferId);
+        var timeout = timeouts.timeoutOf(TransferType.of(evt.participantIds()));
         logger.info(
-            "Scheduling cancellation for transfer [{}], timer id [{}]", evt.transferId(), timerId);
+            "Scheduling cancellation for transfer [{}] in [{}], timer id [{}]",
+            transferId,
+            timeout,
+            timerId);
         var cancellationCall =
             componentClient
-                .forEventSourcedEntity(evt.transferId())
+                .forEventSourcedEntity(transferId)
                 .method(TransferMediatorEntity::cancel)
                 .deferred();
 
+        metrics.increment("transfer-expiry.timer-ops");
         var scheduledCancellation =
-            timerScheduler.startSingleTimer(timerId, Duration.ofSeconds(20), cancellationCall);
+            timerScheduler.startSingleTimer(timerId, timeout, cancellationCall);
 
         yield effects().asyncDone(scheduledCancellation);
       }
 
-      case TransferEvent.Initiated evt -> cancelTimer(evt.transferId());
-      case TransferEvent.Completed evt -> cancelTimer(evt.transferId());
-      case TransferEvent.Cancelled evt -> cancelTimer(evt.transferId());
+      case TransferEvent.Initiated evt -> cancelTimer(transferId);
+      case TransferEvent.Completed evt -> cancelTimer(transferId);
+      case TransferEvent.Cancelled evt -> cancelTimer(transferId);
 
       default -> effects().ignore();
     };
@@ -57,6 +85,7 @@ public class TransferTimeoutConsumer extends Consumer {
   private Effect cancelTimer(String txId) {
     var timerId = genTimerId(txId);
     logger.info("Cancelling transfer timer [{}]", timerId);
+    metrics.increment("transfer-expiry.timer-ops");
     return effects().asyncDone(timerScheduler.cancel(timerId));
   }
 }
@@ -1,12 +1,21 @@
 package demo.transfer.application.consumers;
 
+import akka.Done;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.annotations.Consume;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.consumer.Consumer;
+import com.typesafe.config.Config;
+import demo.common.Metrics;
+import demo.common.Retries;
 import demo.transfer.application.TransferMediatorEntity;
 import demo.transfer.domain.TransferEvent;
 import demo.wallet.application.WalletEntity;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,62 +25,90 @@ public class TransferToWalletConsumer extends Consumer {
 
   private final Logger logger = LoggerFactory.getLogger(getClass());
   private final ComponentClient componentClient;
+  private final int retries;
+  private final Duration retryDelay;
+  private final Metrics metrics = Metrics.global();
 
-  public TransferToWalletConsumer(ComponentClient componentClient) {
+  public TransferToWalletConsumer(ComponentClient componentClient, Config config) {
     this.componentClient = componentClient;
+    this.retries = config.getInt("demo.transfer.participant-calls.retries");
+    this.retryDelay = config.getDuration("demo.transfer.participant-calls.retry-delay");
   }
 
   public Effect onCreated(TransferEvent event) {
 
+    messageContext()
+        .metadata()
+        .asCloudEvent()
+        .time()
+        .ifPresent(time -> metrics.recordSince("hop.transfer-to-wallet.lag", time.toInstant()));
+
+    if (messageContext().eventSubject().isEmpty()) {
+      return effects().done();
+    }
+
+    var transferId = messageContext().eventSubject().get();
     return switch (event) {
         // only react to those three events
-      case TransferEvent.Initiated evt -> initiate(evt);
-      case TransferEvent.Completed evt -> complete(evt);
-      case TransferEvent.Cancelled evt -> cancel(evt);
+      case TransferEvent.Initiated evt -> initiate(transferId, evt);
+      case TransferEvent.Completed evt -> complete(transferId, evt);
+      case TransferEvent.Cancelled evt -> cancel(transferId, evt);
       default -> effects().done();
     };
   }
 
-  private Effect initiate(TransferEvent.Initiated evt) {
-    logger.info("Executing transaction [{}]", evt.transferId());
-
-    evt.participantsIds()
-        .forEach(
-            walletId ->
-                componentClient
-                    .forEventSourcedEntity(walletId)
-                    .method(WalletEntity::executeTransaction)
-                    .invoke(evt.transferId()));
-
-    return effects().done();
+  private Effect initiate(String transferId, TransferEvent.Initiated evt) {
+    logger.info("Executing transaction [{}]", transferId);
+    return forEachParticipant(
+        evt.participantsIds(),
+        walletId ->
+            componentClient
+                .forEventSourcedEntity(walletId)
+                .method(WalletEntity::executeTransaction)
+                .invokeAsync(transferId));
   }
 
-  private Effect complete(TransferEvent.Completed evt) {
-    logger.info("Completing transaction [{}]", evt.transferId());
-
-    evt.participantsIds()
-        .forEach(
-            walletId ->
-                componentClient
-                    .forEventSourcedEntity(walletId)
-                    .method(WalletEntity::completeTransaction)
-                    .invoke(evt.transferId()));
-
-    return effects().done();
+  private Effect complete(String transferId, TransferEvent.Completed evt) {
+    logger.info("Completing transaction [{}]", transferId);
+    return forEachParticipant(
+        evt.participantsIds(),
+        walletId ->
+            componentClient
+                .forEventSourcedEntity(walletId)
+                .method(WalletEntity::completeTransaction)
+                .invokeAsync(transferId));
   }
 
-  private Effect cancel(TransferEvent.Cancelled evt) {
-
-    logger.info("Cancelling transaction [{}]", evt.transferId());
-
-    evt.participantsIds()
-        .forEach(
-            walletId ->
-                componentClient
-                    .forEventSourcedEntity(walletId)
-                    .method(WalletEntity::cancelTransaction)
-                    .invoke(evt.transferId()));
+  private Effect cancel(String transferId, TransferEvent.Cancelled evt) {
+    logger.info("Cancelling transaction [{}]", transferId);
+    return forEachParticipant(
+        evt.participantsIds(),
+        walletId ->
+            componentClient
+                .forEventSourcedEntity(walletId)
+                .method(WalletEntity::cancelTransaction)
+                .invokeAsync(transferId));
+  }
 
-    return effects().done();
+  /**
+   * Calls all participants concurrently, retrying each one on its own, so that a slow or failing
+   * wallet does not delay the calls to the others nor make them be repeated. The event is only
+   * considered handled once every participant has been called successfully.
+   */
+  private Effect forEachParticipant(
+      Set<String> participantsIds, Function<String, CompletionStage<Done>> call) {
+    var calls =
+        participantsIds.stream()
+            .map(
+                walletId ->
+                    Retries.withRetries(() -> call.apply(walletId), retries, retryDelay)
+                        .toCompletableFuture())
+            .toArray(CompletableFuture[]::new);
+
+    var allCalled =
+        metrics.time(
+            "hop.transfer-to-wallet.handle",
+            () -> CompletableFuture.allOf(calls).thenApply(__ -> Done.getInstance()));
+    return effects().asyncDone(allCalled);
   }
 }
@@ -1,26 +1,38 @@
 package demo.transfer.domain;
 
+import akka.javasdk.annotations.Migration;
 import akka.javasdk.annotations.TypeName;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Events of a mediator transfer. They don't repeat the transfer id, which is the id of the entity
+ * that persisted them (the event subject). Initiated, Completed and Cancelled carry the
+ * participants because the consumers acting on them have no other access to the transfer state.
+ */
 public sealed interface TransferEvent {
 
   @TypeName("created")
-  record Created(String transferId, List<Participant> participants) implements TransferEvent {}
+  @Migration(TransferEventMigration.class)
+  record Created(List<String> participantIds) implements TransferEvent {}
 
   @TypeName("participant-joined")
-  record ParticipantJoined(String transferId, String participantId) implements TransferEvent {}
+  @Migration(TransferEventMigration.class)
+  record ParticipantJoined(String participantId) implements TransferEvent {}
 
   @TypeName("participant-executed")
-  record ParticipantExecuted(String transferId, String participantId) implements TransferEvent {}
+  @Migration(TransferEventMigration.class)
+  record ParticipantExecuted(String participantId) implements TransferEvent {}
 
   @TypeName("initiated")
-  record Initiated(String transferId, Set<String> participantsIds) implements TransferEvent {}
+  @Migration(TransferEventMigration.class)
+  record Initiated(Set<String> participantsIds) implements TransferEvent {}
 
   @TypeName("completed")
-  record Completed(String transferId, Set<String> participantsIds) implements TransferEvent {}
+  @Migration(TransferEventMigration.class)
+  record Completed(Set<String> participantsIds) implements TransferEvent {}
 
   @TypeName("cancelled")
-  record Cancelled(String transferId, Set<String> participantsIds) implements TransferEvent {}
+  @Migration(TransferEventMigration.class)
+  record Cancelled(Set<String> participantsIds) implements TransferEvent {}
 }
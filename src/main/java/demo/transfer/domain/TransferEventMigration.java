@@ -0,0 +1,30 @@
+package demo.transfer.domain;
+
+import akka.javasdk.JsonMigration;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Reads transfer events persisted before version 1, which repeated the transfer id in every event
+ * and stored the full (all false) participant records in {@code Created}.
+ */
+public class TransferEventMigration extends JsonMigration {
+
+  @Override
+  public int currentVersion() {
+    return 1;
+  }
+
+  @Override
+  public JsonNode transform(int fromVersion, JsonNode json) {
+    if (fromVersion < 1 && json instanceof ObjectNode event) {
+      event.remove("transferId");
+      var participants = event.remove("participants");
+      if (participants != null) {
+        var ids = event.putArray("participantIds");
+        participants.forEach(participant -> ids.add(participant.get("id").asText()));
+      }
+    }
+    return json;
+  }
+}
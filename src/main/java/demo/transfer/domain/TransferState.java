@@ -1,24 +1,35 @@
 package demo.transfer.domain;
 
-import static demo.transfer.domain.TransferState.Status.PENDING;
-
-import java.util.Collection;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-
-public record TransferState(
-    String transferId, Map<String, Participant> participants, Status status) {
 
-  // constructor accepting list of participants
-  public TransferState(String transferId, List<Participant> participants) {
-    this(
-        transferId,
-        participants.stream().collect(Collectors.toMap(Participant::id, Function.identity())),
-        PENDING);
-  }
+/**
+ * Transfer state.
+ *
+ * <p>The participants are a list of ids, each at a fixed position, with the joined and executed
+ * ones as bit sets over those positions. The state is immutable: a transition copies the bit set it
+ * changes, a few words even for thousands of participants, and shares everything else with the
+ * previous state, including the index from id to position. {@code joined} and {@code executed}
+ * count the bits set, so that telling whether a participant is the last one doesn't walk the
+ * others.
+ *
+ * <p>The JSON form, used for snapshots, is the ids and the bit sets as arrays of longs. Snapshots
+ * written before, with a map of participants, still read the same.
+ */
+@JsonAutoDetect(
+    getterVisibility = JsonAutoDetect.Visibility.NONE,
+    isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public final class TransferState {
 
   public enum Status {
     PENDING,
@@ -31,12 +42,159 @@ public record TransferState(
     }
   }
 
+  private final String transferId;
+  private final Map<String, Integer> positions;
+  private final Status status;
+  private final long[] joinedSet;
+  private final long[] executedSet;
+  private final int joined;
+  private final int executed;
+
+  private TransferState(
+      String transferId,
+      Map<String, Integer> positions,
+      Status status,
+      long[] joinedSet,
+      long[] executedSet,
+      int joined,
+      int executed) {
+    this.transferId = transferId;
+    this.positions = positions;
+    this.status = status;
+    this.joinedSet = joinedSet;
+    this.executedSet = executedSet;
+    this.joined = joined;
+    this.executed = executed;
+  }
+
+  /**
+   * A new transfer, none of its participants having joined yet. A wallet takes part at most once, a
+   * participant given twice is rejected rather than merged, as it would leave one leg unaccounted.
+   */
+  public static TransferState created(String transferId, List<String> participantIds) {
+    var positions = index(participantIds);
+    var words = words(positions.size());
+    return new TransferState(
+        transferId, positions, Status.PENDING, new long[words], new long[words], 0, 0);
+  }
+
+  @JsonCreator
+  static TransferState fromJson(
+      @JsonProperty("transferId") String transferId,
+      @JsonProperty("participantIds") List<String> participantIds,
+      @JsonProperty("status") Status status,
+      @JsonProperty("joinedSet") long[] joinedSet,
+      @JsonProperty("executedSet") long[] executedSet,
+      // form of the snapshots written before
+      @JsonProperty("participants") Map<String, Participant> participants) {
+
+    if (participantIds == null && participants != null) {
+      var state = created(transferId, new ArrayList<>(participants.keySet()));
+      for (var participant : participants.values()) {
+        if (participant.joined()) state = state.participantJoined(participant.id());
+        if (participant.executed()) state = state.participantExecuted(participant.id());
+      }
+      return state.withStatus(status);
+    }
+
+    var positions = index(participantIds == null ? List.of() : participantIds);
+    var words = words(positions.size());
+    var joined = joinedSet == null ? new long[words] : Arrays.copyOf(joinedSet, words);
+    var executed = executedSet == null ? new long[words] : Arrays.copyOf(executedSet, words);
+    return new TransferState(
+        transferId, positions, status, joined, executed, bitCount(joined), bitCount(executed));
+  }
+
+  private static Map<String, Integer> index(List<String> participantIds) {
+    var positions = new LinkedHashMap<String, Integer>();
+    for (var id : participantIds) {
+      if (positions.putIfAbsent(id, positions.size()) != null) {
+        throw new IllegalArgumentException("Participant [" + id + "] is given twice");
+      }
+    }
+    return Collections.unmodifiableMap(positions);
+  }
+
+  private static int words(int bits) {
+    return (bits + 63) >>> 6;
+  }
+
+  private static int bitCount(long[] set) {
+    var count = 0;
+    for (var word : set) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+
+  private static boolean isSet(long[] set, int position) {
+    return (set[position >>> 6] & (1L << position)) != 0;
+  }
+
+  private static long[] withSet(long[] set, int position) {
+    var copy = set.clone();
+    copy[position >>> 6] |= 1L << position;
+    return copy;
+  }
+
+  @JsonProperty
+  public String transferId() {
+    return transferId;
+  }
+
+  @JsonProperty
+  public Status status() {
+    return status;
+  }
+
+  @JsonProperty
+  public List<String> participantIds() {
+    return List.copyOf(positions.keySet());
+  }
+
+  @JsonProperty
+  long[] joinedSet() {
+    return joinedSet;
+  }
+
+  @JsonProperty
+  long[] executedSet() {
+    return executedSet;
+  }
+
+  public int joined() {
+    return joined;
+  }
+
+  public int executed() {
+    return executed;
+  }
+
   public Set<String> allParticipantsIds() {
-    return participants.keySet();
+    return positions.keySet();
+  }
+
+  public boolean isParticipant(String participantId) {
+    return positions.containsKey(participantId);
+  }
+
+  /** The participants, in the order they were given when the transfer was created. */
+  public List<Participant> participants() {
+    var participants = new ArrayList<Participant>(positions.size());
+    positions.forEach(
+        (id, position) ->
+            participants.add(
+                new Participant(id, isSet(joinedSet, position), isSet(executedSet, position))));
+    return participants;
+  }
+
+  private TransferState withStatus(Status newStatus) {
+    return new TransferState(
+        transferId, positions, newStatus, joinedSet, executedSet, joined, executed);
   }
 
   public TransferState initiate() {
-    return new TransferState(transferId, participants, Status.INITIATED);
+    return withStatus(Status.INITIATED);
   }
 
   public boolean isPending() {
@@ -48,7 +206,7 @@ public record TransferState(
   }
 
   public TransferState complete() {
-    return new TransferState(transferId, participants, Status.COMPLETED);
+    return withStatus(Status.COMPLETED);
   }
 
   public boolean isCompleted() {
@@ -56,7 +214,7 @@ public record TransferState(
   }
 
   public TransferState cancel() {
-    return new TransferState(transferId, participants, Status.CANCELLED);
+    return withStatus(Status.CANCELLED);
   }
 
   public boolean isCancelled() {
@@ -64,50 +222,60 @@ public record TransferState(
   }
 
   public TransferState participantJoined(String participantId) {
-    var participant = participants.get(participantId);
-    if (participant != null) {
-      var newParticipant = new Participant(participant.id(), true, participant.executed());
-      participants.put(participantId, newParticipant);
+    var position = positions.get(participantId);
+    if (position != null && !isSet(joinedSet, position)) {
+      return new TransferState(
+          transferId,
+          positions,
+          status,
+          withSet(joinedSet, position),
+          executedSet,
+          joined + 1,
+          executed);
     }
     return this;
   }
 
   public boolean allJoined() {
-    return allJoined(participants.values());
-  }
-
-  private boolean allJoined(Collection<Participant> participants) {
-    return participants.stream().allMatch(Participant::joined);
+    return joined == positions.size();
   }
 
+  /** Whether all participants other than the given one have joined. */
   public boolean isLastToJoin(String participantId) {
-    var allOtherParticipants =
-        participants.values().stream().filter(p -> !p.id().equals(participantId));
-    return allJoined(allOtherParticipants.toList());
+    var others = positions.size() - (isParticipant(participantId) ? 1 : 0);
+    var othersJoined = joined - (hasJoined(participantId) ? 1 : 0);
+    return othersJoined == others;
   }
 
+  /** Whether all participants other than the given one have executed. */
   public boolean isLastToExecute(String participantId) {
-    var allOtherParticipants =
-        participants.values().stream().filter(p -> !p.id().equals(participantId));
-    return allOtherParticipants.allMatch(Participant::executed);
+    var others = positions.size() - (isParticipant(participantId) ? 1 : 0);
+    var othersExecuted = executed - (hasExecuted(participantId) ? 1 : 0);
+    return othersExecuted == others;
   }
 
   public TransferState participantExecuted(String participantId) {
-    var participant = participants.get(participantId);
-    if (participant != null) {
-      var newParticipant = new Participant(participant.id(), participant.joined(), true);
-      participants.put(participantId, newParticipant);
+    var position = positions.get(participantId);
+    if (position != null && !isSet(executedSet, position)) {
+      return new TransferState(
+          transferId,
+          positions,
+          status,
+          joinedSet,
+          withSet(executedSet, position),
+          joined,
+          executed + 1);
     }
     return this;
   }
 
   public boolean hasJoined(String participantId) {
-    var participant = participants.get(participantId);
-    return participant != null && participant.joined();
+    var position = positions.get(participantId);
+    return position != null && isSet(joinedSet, position);
   }
 
   public boolean hasExecuted(String participantId) {
-    var participant = participants.get(participantId);
-    return participant != null && participant.executed();
+    var position = positions.get(participantId);
+    return position != null && isSet(executedSet, position);
   }
 }
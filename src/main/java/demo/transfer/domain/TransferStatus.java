@@ -5,7 +5,6 @@ import java.util.List;
 public record TransferStatus(
     String transferId, List<Participant> participants, TransferState.Status status) {
   public static TransferStatus of(TransferState state) {
-    return new TransferStatus(
-        state.transferId(), List.copyOf(state.participants().values()), state.status());
+    return new TransferStatus(state.transferId(), state.participants(), state.status());
   }
 }
@@ -0,0 +1,32 @@
+package demo.transfer.domain;
+
+import java.util.List;
+
+/** Kind of mediator transfer, told by its number of participants. */
+public enum TransferType {
+  /** A deposit to or a withdrawal from a single wallet. */
+  SINGLE_WALLET("single-wallet"),
+  /** A transfer from one wallet to another. */
+  TWO_PARTY("two-party"),
+  /** A transfer between more than two wallets, or a withdrawal split over sub-wallets. */
+  MULTI_PARTY("multi-party");
+
+  private final String id;
+
+  TransferType(String id) {
+    this.id = id;
+  }
+
+  /** Name of the type in configuration and metrics. */
+  public String id() {
+    return id;
+  }
+
+  public static TransferType of(List<String> participantIds) {
+    return switch (participantIds.size()) {
+      case 0, 1 -> SINGLE_WALLET;
+      case 2 -> TWO_PARTY;
+      default -> MULTI_PARTY;
+    };
+  }
+}
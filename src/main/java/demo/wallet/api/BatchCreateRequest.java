@@ -0,0 +1,9 @@
+package demo.wallet.api;
+
+import java.util.List;
+
+/** Wallets to create; {@code openingBalance} can be left out for an empty wallet. */
+public record BatchCreateRequest(List<Item> wallets) {
+
+  public record Item(String walletId, long openingBalance) {}
+}
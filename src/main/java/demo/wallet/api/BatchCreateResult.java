@@ -0,0 +1,16 @@
+package demo.wallet.api;
+
+/**
+ * Outcome of one wallet of a batch. A created wallet reports its balance, which is the opening
+ * balance unless the wallet already existed.
+ */
+public record BatchCreateResult(String walletId, boolean created, Long balance, String error) {
+
+  public static BatchCreateResult created(String walletId, long balance) {
+    return new BatchCreateResult(walletId, true, balance, null);
+  }
+
+  public static BatchCreateResult failed(String walletId, String error) {
+    return new BatchCreateResult(walletId, false, null, error);
+  }
+}
@@ -6,33 +6,78 @@ import akka.javasdk.annotations.http.Get;
 import akka.javasdk.annotations.http.HttpEndpoint;
 import akka.javasdk.annotations.http.Post;
 import akka.javasdk.client.ComponentClient;
+import akka.javasdk.http.AbstractHttpEndpoint;
+import akka.javasdk.http.HttpException;
 import akka.javasdk.http.HttpResponses;
+import akka.stream.javadsl.Source;
+import com.typesafe.config.Config;
+import demo.common.NdJson;
 import demo.transfer.api.TransferId;
 import demo.transfer.application.TransferMediatorEntity;
 import demo.transfer.domain.Create;
+import demo.transfer.domain.Participant;
+import demo.wallet.application.DepositBatcher;
+import demo.wallet.application.ShardedWalletEntity;
+import demo.wallet.application.WalletCache;
 import demo.wallet.application.WalletEntity;
+import demo.wallet.application.WalletShards;
 import demo.wallet.application.WalletView;
 import demo.wallet.domain.DepositCommand;
+import demo.wallet.domain.ShardedWallet;
+import demo.wallet.domain.Wallet;
 import demo.wallet.domain.WithdrawCommand;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 // Opened up for access from the public internet to make the service easy to try out.
 // For actual services meant for production this must be carefully considered and often set more
 // limited
 @Acl(allow = @Acl.Matcher(principal = Acl.Principal.INTERNET))
 @HttpEndpoint("/wallet")
-public class WalletEndpoint {
+public class WalletEndpoint extends AbstractHttpEndpoint {
+
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int MAX_PAGE_SIZE = 1000;
 
   private final ComponentClient componentClient;
+  private final int batchParallelism;
+  private final WalletCache walletCache;
+  private final DepositBatcher depositBatcher;
+  private final WalletShards walletShards;
+  private final int maxShards;
 
-  public WalletEndpoint(ComponentClient componentClient) {
+  public WalletEndpoint(
+      ComponentClient componentClient,
+      Config config,
+      WalletCache walletCache,
+      DepositBatcher depositBatcher,
+      WalletShards walletShards) {
     this.componentClient = componentClient;
+    this.batchParallelism = config.getInt("demo.wallet.batch.parallelism");
+    this.maxShards = config.getInt("demo.wallet.sharding.max-shards");
+    this.walletCache = walletCache;
+    this.depositBatcher = depositBatcher;
+    this.walletShards = walletShards;
   }
 
+  /** State of the wallet. The state of a sharded wallet adds up the states of its sub-wallets. */
   @Get("/{walletId}")
   public WalletStatus state(String walletId) {
 
-    var wallet =
-        componentClient.forEventSourcedEntity(walletId).method(WalletEntity::getState).invoke();
+    var shardedWallet = walletShards.find(walletId);
+    if (shardedWallet.isPresent()) {
+      return WalletStatus.of(
+          walletId, shardWallets(shardedWallet.get()).toCompletableFuture().join().values());
+    }
+
+    var wallet = cachedWallet(walletId);
 
     return WalletStatus.of(walletId, wallet);
   }
@@ -40,19 +85,153 @@ public class WalletEndpoint {
   @Get("/{walletId}/balance")
   public WalletBalance balance(String walletId) {
 
+    var shardedWallet = walletShards.find(walletId);
+    if (shardedWallet.isPresent()) {
+      var balance =
+          shardWallets(shardedWallet.get()).toCompletableFuture().join().values().stream()
+              .mapToLong(Wallet::balance)
+              .sum();
+      return new WalletBalance(walletId, balance);
+    }
+
+    // without the cache, read just the balance rather than the whole wallet
     var balance =
-        componentClient.forEventSourcedEntity(walletId).method(WalletEntity::getBalance).invoke();
+        walletCache.isEnabled()
+            ? cachedWallet(walletId).balance()
+            : componentClient
+                .forEventSourcedEntity(walletId)
+                .method(WalletEntity::getBalance)
+                .invoke();
 
     return new WalletBalance(walletId, balance);
   }
 
+  /** Current state of every sub-wallet, read concurrently. */
+  private CompletionStage<Map<String, Wallet>> shardWallets(ShardedWallet shardedWallet) {
+    var reads = new HashMap<String, CompletableFuture<Wallet>>();
+    for (var shardId : shardedWallet.shardIds()) {
+      reads.put(
+          shardId,
+          componentClient
+              .forEventSourcedEntity(shardId)
+              .method(WalletEntity::getState)
+              .invokeAsync()
+              .toCompletableFuture());
+    }
+    return CompletableFuture.allOf(reads.values().toArray(CompletableFuture[]::new))
+        .thenApply(
+            __ -> {
+              var wallets = new HashMap<String, Wallet>();
+              reads.forEach((shardId, read) -> wallets.put(shardId, read.join()));
+              return wallets;
+            });
+  }
+
+  private CompletionStage<Map<String, Long>> shardBalances(ShardedWallet shardedWallet) {
+    return shardWallets(shardedWallet)
+        .thenApply(
+            wallets -> {
+              var balances = new HashMap<String, Long>();
+              wallets.forEach((shardId, wallet) -> balances.put(shardId, wallet.balance()));
+              return balances;
+            });
+  }
+
+  private Wallet cachedWallet(String walletId) {
+    return walletCache.get(
+        walletId,
+        () ->
+            componentClient
+                .forEventSourcedEntity(walletId)
+                .method(WalletEntity::getState)
+                .invoke());
+  }
+
   @Get("/balance/higher-than/{amount}")
   public WalletsList findBalanceHigherThan(long amount) {
     return componentClient.forView().method(WalletView::getWallets).invoke(amount);
   }
 
+  /**
+   * Wallets with a balance higher than {@code amount}, highest first then by id, one page at a
+   * time. Query parameters: {@code pageSize} (default {@value #DEFAULT_PAGE_SIZE}, at most {@value
+   * #MAX_PAGE_SIZE}) and {@code pageToken}, the {@code nextPageToken} of the previous page.
+   *
+   * <p>A page token is an offset into the wallets ordered by balance, not a position in a snapshot.
+   * A wallet whose balance changes between two pages can move across the offset, and then be
+   * skipped or returned twice. Clients paging through a changing view should dedupe by id and not
+   * expect every wallet to appear.
+   */
+  @Get("/balance/higher-than/{amount}/page")
+  public WalletsPage findBalanceHigherThanPage(long amount) {
+    var queryParams = requestContext().queryParams();
+    var pageSize =
+        Math.min(queryParams.getInteger("pageSize").orElse(DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+    if (pageSize <= 0) {
+      throw HttpException.badRequest("pageSize must be positive");
+    }
+    var pageToken = queryParams.getString("pageToken").orElse("");
+    return componentClient
+        .forView()
+        .method(WalletView::getWalletsPage)
+        .invoke(new WalletView.BalancePageQuery(amount, pageSize, pageToken));
+  }
+
+  /**
+   * Wallets with a balance higher than {@code amount}, highest first then by id, streamed as
+   * newline-delimited JSON while they are read from the view, so that neither side holds the whole
+   * result.
+   */
+  @Get("/balance/higher-than/{amount}/stream")
+  public HttpResponse streamBalanceHigherThan(long amount) {
+    return NdJson.response(
+        componentClient.forView().stream(WalletView::streamWallets).source(amount));
+  }
+
+  /**
+   * Server-sent events with the balance of the wallets given as {@code id} query parameters, first
+   * their current balance, then every change. Served from the wallet view, so watching balances
+   * puts no read load on the wallets themselves.
+   */
+  @Get("/balance/feed")
+  public HttpResponse balanceFeed() {
+    var ids = requestContext().queryParams().getAll("id");
+    if (ids.isEmpty()) {
+      throw HttpException.badRequest("At least one wallet id query parameter is required");
+    }
+    return HttpResponses.serverSentEvents(
+        componentClient.forView().stream(WalletView::feedByIds)
+            .source(new WalletView.WalletIds(ids)));
+  }
+
+  /**
+   * Server-sent events with the wallets whose balance is higher than {@code amount}, first all of
+   * them, then every change of a balance that is still higher.
+   */
+  @Get("/balance/higher-than/{amount}/feed")
+  public HttpResponse balanceHigherThanFeed(long amount) {
+    return HttpResponses.serverSentEvents(
+        componentClient.forView().stream(WalletView::feedHigherThan).source(amount));
+  }
+
+  /**
+   * Creates the wallet. With a {@code shards} query parameter greater than 1, creates a sharded
+   * wallet instead, whose balance is split over that many sub-wallets, so that it can take more
+   * deposits than a single wallet entity. A wallet can only be sharded when it is created, and only
+   * when {@code demo.wallet.sharding.enabled} is set.
+   */
   @Post("/{walletId}/create")
   public WalletStatus create(String walletId) {
+    if (!ShardedWallet.isValidWalletId(walletId)) {
+      throw HttpException.badRequest("Wallet ids can't contain '#', kept for sub-wallets");
+    }
+
+    var shards = requestContext().queryParams().getInteger("shards").orElse(1);
+    if (shards > 1) {
+      return createSharded(walletId, shards);
+    } else if (walletShards.isEnabled()) {
+      claimLayout(walletId, 1).toCompletableFuture().join();
+    }
 
     var wallet =
         componentClient.forEventSourcedEntity(walletId).method(WalletEntity::create).invoke();
@@ -60,42 +239,278 @@ public class WalletEndpoint {
     return WalletStatus.of(walletId, wallet);
   }
 
-  @Post("/{walletId}/deposit")
-  public HttpResponse deposit(String walletId, DepositRequest request) {
-
-    var prefixedTransferId = TransferId.prefixForMediator(request.transactionId());
-    componentClient
-        .forEventSourcedEntity(prefixedTransferId)
-        .method(TransferMediatorEntity::init)
-        .invoke(Create.of(walletId));
+  /**
+   * Takes the wallet id for a layout of {@code shards} sub-wallets, 1 for a plain wallet. Fails if
+   * the id was already taken for another layout, so that a plain and a sharded wallet created at
+   * the same time, from different service instances, can't both succeed.
+   */
+  private CompletionStage<ShardedWallet> claimLayout(String walletId, int shards) {
+    return componentClient
+        .forKeyValueEntity(walletId)
+        .method(ShardedWalletEntity::create)
+        .invokeAsync(shards);
+  }
 
-    var wallet =
+  private WalletStatus createSharded(String walletId, int shards) {
+    if (!walletShards.isEnabled()) {
+      throw HttpException.badRequest("Sharded wallets are not enabled");
+    } else if (shards > maxShards) {
+      throw HttpException.badRequest("A wallet can have at most " + maxShards + " shards");
+    }
+    var existing =
         componentClient
             .forEventSourcedEntity(walletId)
-            .method(WalletEntity::deposit)
-            .invoke(new DepositCommand(request.amount(), prefixedTransferId));
+            .method(WalletEntity::getState)
+            .invokeAsync()
+            .handle((wallet, error) -> error == null)
+            .toCompletableFuture()
+            .join();
+    // a wallet created before sharding was enabled has no layout
+    if (existing) {
+      throw HttpException.badRequest("Wallet [" + walletId + "] already exists and isn't sharded");
+    }
+
+    // the sub-wallets are created right after, and again by a repeated request if some failed
+    var layout = claimLayout(walletId, shards).toCompletableFuture().join();
+    var created =
+        layout.shardIds().stream()
+            .map(
+                shardId ->
+                    componentClient
+                        .forEventSourcedEntity(shardId)
+                        .method(WalletEntity::create)
+                        .invokeAsync()
+                        .toCompletableFuture())
+            .toList();
+    var wallets = created.stream().map(CompletableFuture::join).toList();
+
+    walletShards.created(layout);
+    return WalletStatus.of(walletId, wallets);
+  }
+
+  /**
+   * Moves funds between the sub-wallets of a sharded wallet to even out their balances, one
+   * transfer per move, so that withdrawals can again be served by a single sub-wallet. Returns the
+   * moves started.
+   */
+  @Post("/{walletId}/rebalance")
+  public CompletionStage<List<ShardedWallet.Move>> rebalance(String walletId) {
+    return walletShards
+        .findAsync(walletId)
+        .thenApply(
+            shardedWallet ->
+                shardedWallet.orElseThrow(
+                    () -> HttpException.badRequest("Wallet [" + walletId + "] is not sharded")))
+        .thenCompose(
+            shardedWallet -> shardBalances(shardedWallet).thenApply(shardedWallet::planRebalance))
+        .thenCompose(
+            moves -> {
+              var started =
+                  moves.stream()
+                      .map(move -> startMove(move).toCompletableFuture())
+                      .toArray(CompletableFuture[]::new);
+              return CompletableFuture.allOf(started).thenApply(__ -> moves);
+            });
+  }
+
+  private CompletionStage<Wallet> startMove(ShardedWallet.Move move) {
+    var transferId = TransferId.prefixForMediator("rebalance-" + UUID.randomUUID());
+    return componentClient
+        .forEventSourcedEntity(transferId)
+        .method(TransferMediatorEntity::init)
+        .invokeAsync(Create.of(move.from(), move.to()))
+        .thenCompose(
+            __ -> {
+              var withdrawn =
+                  componentClient
+                      .forEventSourcedEntity(move.from())
+                      .method(WalletEntity::withdraw)
+                      .invokeAsync(new WithdrawCommand(move.amount(), transferId));
+              var deposited =
+                  depositBatcher.deposit(move.to(), new DepositCommand(move.amount(), transferId));
+              return withdrawn.thenCombine(deposited, (w, d) -> d);
+            });
+  }
+
+  /**
+   * Creates every wallet of the batch with its opening balance, at most {@code
+   * demo.wallet.batch.parallelism} at a time, and streams one {@link BatchCreateResult} per wallet
+   * as newline-delimited JSON, in completion order. Wallets that already exist are left as they
+   * are, so a partially failed batch can simply be sent again.
+   */
+  @Post("/batch")
+  public HttpResponse createBatch(BatchCreateRequest request) {
+    if (request.wallets() == null || request.wallets().stream().anyMatch(Objects::isNull)) {
+      throw HttpException.badRequest("wallets must be a list of wallets");
+    }
+    var results =
+        Source.from(request.wallets()).mapAsyncUnordered(batchParallelism, this::createItem);
+    return NdJson.response(results);
+  }
 
-    var walletStatus = WalletStatus.of(walletId, wallet);
-    return HttpResponses.ok(walletStatus);
+  /**
+   * Creates one wallet of the batch. The response is already under way, so nothing here may throw:
+   * a failure is reported for the wallet alone, and the rest of the batch goes on.
+   */
+  private CompletionStage<BatchCreateResult> createItem(BatchCreateRequest.Item item) {
+    if (item.walletId() == null || item.walletId().isBlank()) {
+      return CompletableFuture.completedFuture(
+          BatchCreateResult.failed(item.walletId(), "A wallet needs a wallet id"));
+    } else if (!ShardedWallet.isValidWalletId(item.walletId())) {
+      return CompletableFuture.completedFuture(
+          BatchCreateResult.failed(
+              item.walletId(), "Wallet ids can't contain '#', kept for sub-wallets"));
+    }
+    CompletionStage<?> claimed;
+    try {
+      claimed =
+          walletShards.isEnabled()
+              ? claimLayout(item.walletId(), 1)
+              : CompletableFuture.completedFuture(null);
+    } catch (RuntimeException e) {
+      claimed = CompletableFuture.failedFuture(e);
+    }
+    return claimed
+        .thenCompose(
+            __ ->
+                componentClient
+                    .forEventSourcedEntity(item.walletId())
+                    .method(WalletEntity::createWithBalance)
+                    .invokeAsync(item.openingBalance()))
+        .handle(
+            (wallet, error) -> {
+              if (error == null) {
+                return BatchCreateResult.created(item.walletId(), wallet.balance());
+              } else {
+                var cause = error instanceof CompletionException ? error.getCause() : error;
+                return BatchCreateResult.failed(item.walletId(), cause.getMessage());
+              }
+            });
   }
 
+  /**
+   * Deposits to the same wallet may be coalesced into one call, see {@link DepositBatcher}. A
+   * deposit to a sharded wallet goes to one of its sub-wallets and, like a withdrawal, returns the
+   * state of the whole wallet.
+   */
+  @Post("/{walletId}/deposit")
+  public CompletionStage<HttpResponse> deposit(String walletId, DepositRequest request) {
+
+    var prefixedTransferId = TransferId.prefixForMediator(request.transactionId());
+    return walletShards
+        .findAsync(walletId)
+        .thenCompose(
+            shardedWallet -> {
+              var depositTo =
+                  shardedWallet
+                      .map(sharded -> sharded.shardFor(prefixedTransferId))
+                      .orElse(walletId);
+              var deposited =
+                  componentClient
+                      .forEventSourcedEntity(prefixedTransferId)
+                      .method(TransferMediatorEntity::init)
+                      .invokeAsync(Create.of(depositTo))
+                      .thenCompose(
+                          __ ->
+                              depositBatcher.deposit(
+                                  depositTo,
+                                  new DepositCommand(request.amount(), prefixedTransferId)));
+              if (shardedWallet.isEmpty()) {
+                return deposited.thenApply(wallet -> WalletStatus.of(walletId, wallet));
+              }
+              return deposited
+                  .thenCompose(__ -> shardWallets(shardedWallet.get()))
+                  .thenApply(wallets -> WalletStatus.of(walletId, wallets.values()));
+            })
+        .thenApply(HttpResponses::ok);
+  }
+
+  /**
+   * Withdraws from the wallet. A withdrawal from a sharded wallet is served by the sub-wallets
+   * holding the funds, as one transfer with a leg per sub-wallet, and returns the state of the
+   * whole wallet.
+   */
   @Post("/{walletId}/withdraw")
-  public HttpResponse withdraw(String walletId, WithdrawRequest request) {
+  public CompletionStage<HttpResponse> withdraw(String walletId, WithdrawRequest request) {
 
     var prefixedTransferId = TransferId.prefixForMediator(request.transactionId());
+    return walletShards
+        .findAsync(walletId)
+        .thenCompose(
+            shardedWallet ->
+                shardedWallet.isPresent()
+                    ? withdrawSharded(shardedWallet.get(), prefixedTransferId, request.amount())
+                    : withdrawPlain(walletId, prefixedTransferId, request.amount()));
+  }
 
-    componentClient
+  private CompletionStage<HttpResponse> withdrawPlain(
+      String walletId, String prefixedTransferId, long amount) {
+    return componentClient
         .forEventSourcedEntity(prefixedTransferId)
         .method(TransferMediatorEntity::init)
-        .invoke(Create.of(walletId));
+        .invokeAsync(Create.of(walletId))
+        .thenCompose(
+            __ ->
+                componentClient
+                    .forEventSourcedEntity(walletId)
+                    .method(WalletEntity::withdraw)
+                    .invokeAsync(new WithdrawCommand(amount, prefixedTransferId)))
+        .thenApply(wallet -> HttpResponses.ok(WalletStatus.of(walletId, wallet)));
+  }
 
-    var wallet =
-        componentClient
-            .forEventSourcedEntity(walletId)
-            .method(WalletEntity::withdraw)
-            .invoke(new WithdrawCommand(request.amount(), prefixedTransferId));
+  private CompletionStage<HttpResponse> withdrawSharded(
+      ShardedWallet shardedWallet, String transferId, long amount) {
+    return shardWallets(shardedWallet)
+        .thenCompose(
+            wallets -> {
+              // funds already reserved by this transaction count as available, so that a
+              // repeated request plans the same legs as the first one
+              var balances = new HashMap<String, Long>();
+              wallets.forEach(
+                  (shardId, wallet) -> {
+                    var reserved = wallet.pendingTransactions().get(transferId);
+                    var reservedAmount =
+                        reserved != null && reserved.isWithdraw() ? reserved.amount() : 0;
+                    balances.put(shardId, wallet.balance() + reservedAmount);
+                  });
+              var legs = shardedWallet.planWithdraw(balances, transferId, amount);
+              if (legs.isEmpty()) {
+                throw HttpException.badRequest("Insufficient balance");
+              }
+              return withdrawLegs(shardedWallet, transferId, legs);
+            });
+  }
 
-    var walletStatus = WalletStatus.of(walletId, wallet);
-    return HttpResponses.ok(walletStatus);
+  private CompletionStage<HttpResponse> withdrawLegs(
+      ShardedWallet shardedWallet, String transferId, List<ShardedWallet.Leg> legs) {
+    var legIds = legs.stream().map(ShardedWallet.Leg::shardId).toList();
+    return componentClient
+        .forEventSourcedEntity(transferId)
+        .method(TransferMediatorEntity::init)
+        .invokeAsync(new Create(legIds))
+        .thenCompose(
+            status -> {
+              // a repeated request plans other legs if the balances changed in between
+              var participants = status.participants().stream().map(Participant::id).toList();
+              if (!Set.copyOf(participants).equals(Set.copyOf(legIds))) {
+                throw HttpException.badRequest(
+                    "Transaction [" + transferId + "] is in progress on other sub-wallets");
+              }
+              var withdrawn =
+                  legs.stream()
+                      .map(
+                          leg ->
+                              componentClient
+                                  .forEventSourcedEntity(leg.shardId())
+                                  .method(WalletEntity::withdraw)
+                                  .invokeAsync(new WithdrawCommand(leg.amount(), transferId))
+                                  .toCompletableFuture())
+                      .toArray(CompletableFuture[]::new);
+              return CompletableFuture.allOf(withdrawn);
+            })
+        .thenCompose(__ -> shardWallets(shardedWallet))
+        .thenApply(
+            wallets ->
+                HttpResponses.ok(WalletStatus.of(shardedWallet.walletId(), wallets.values())));
   }
 }
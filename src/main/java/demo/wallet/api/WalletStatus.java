@@ -1,6 +1,7 @@
 package demo.wallet.api;
 
 import demo.wallet.domain.Wallet;
+import java.util.Collection;
 import java.util.List;
 
 public record WalletStatus(
@@ -16,4 +17,14 @@ public record WalletStatus(
             .toList();
     return new WalletStatus(walletId, wallet.balance(), wallet.reservedFunds(), tx);
   }
+
+  /** Status of a sharded wallet, adding up its sub-wallets. */
+  public static WalletStatus of(String walletId, Collection<Wallet> shards) {
+    var statuses = shards.stream().map(shard -> of(walletId, shard)).toList();
+    return new WalletStatus(
+        walletId,
+        statuses.stream().mapToLong(WalletStatus::balance).sum(),
+        statuses.stream().mapToLong(WalletStatus::reservedFunds).sum(),
+        statuses.stream().flatMap(status -> status.pendingTransactions().stream()).toList());
+  }
 }
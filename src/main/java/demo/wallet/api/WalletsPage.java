@@ -0,0 +1,10 @@
+package demo.wallet.api;
+
+import java.util.List;
+
+/**
+ * One page of wallets. {@code nextPageToken} fetches the following page while {@code hasMore} is
+ * true; {@code totalCount} counts the wallets of all pages.
+ */
+public record WalletsPage(
+    List<WalletBalance> wallets, String nextPageToken, boolean hasMore, long totalCount) {}
@@ -0,0 +1,140 @@
+package demo.wallet.application;
+
+import akka.javasdk.client.ComponentClient;
+import com.typesafe.config.Config;
+import demo.common.Metrics;
+import demo.wallet.domain.DepositBatch;
+import demo.wallet.domain.DepositCommand;
+import demo.wallet.domain.Wallet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+
+/**
+ * Coalesces concurrent deposits to the same wallet, configured under {@code
+ * demo.wallet.deposit-batching}.
+ *
+ * <p>Works like a group commit: at most one call per wallet is in flight from this service
+ * instance. The first deposit to a wallet is sent right away, and the deposits arriving while it is
+ * in flight wait and are sent together, at most {@code max-batch-size} at a time, as one {@link
+ * WalletEntity#depositBatch} call that initiates them in a single write. A quiet wallet sees no
+ * added latency, and a hot one sees fewer, larger writes. Every deposit is completed with the
+ * outcome of the call it went out with, and a call failing, even before it is sent, fails its
+ * deposits and goes on with the ones waiting. When batching is disabled, every deposit is sent on
+ * its own, as a {@link WalletEntity#deposit} call.
+ *
+ * <p>All deposits of the service go through it: those of the wallet endpoint, including sub-wallet
+ * rebalancing, and the deposit legs of mediator transfers and transfer workflows.
+ */
+public final class DepositBatcher {
+
+  private record Pending(DepositCommand command, CompletableFuture<Wallet> reply) {}
+
+  private final boolean enabled;
+  private final int maxBatchSize;
+  private final BiFunction<String, DepositCommand, CompletionStage<Wallet>> sendOne;
+  private final BiFunction<String, List<DepositCommand>, CompletionStage<Wallet>> sendBatch;
+  // deposits waiting per wallet with a call in flight
+  private final Map<String, List<Pending>> waiting = new HashMap<>();
+  private final Metrics metrics = Metrics.global();
+
+  public DepositBatcher(
+      boolean enabled,
+      int maxBatchSize,
+      BiFunction<String, DepositCommand, CompletionStage<Wallet>> sendOne,
+      BiFunction<String, List<DepositCommand>, CompletionStage<Wallet>> sendBatch) {
+    this.enabled = enabled;
+    this.maxBatchSize = maxBatchSize;
+    this.sendOne = sendOne;
+    this.sendBatch = sendBatch;
+  }
+
+  public static DepositBatcher fromConfig(Config config, ComponentClient componentClient) {
+    var batching = config.getConfig("demo.wallet.deposit-batching");
+    return new DepositBatcher(
+        batching.getBoolean("enabled"),
+        batching.getInt("max-batch-size"),
+        (walletId, deposit) ->
+            componentClient
+                .forEventSourcedEntity(walletId)
+                .method(WalletEntity::deposit)
+                .invokeAsync(deposit),
+        (walletId, deposits) ->
+            componentClient
+                .forEventSourcedEntity(walletId)
+                .method(WalletEntity::depositBatch)
+                .invokeAsync(new DepositBatch(deposits)));
+  }
+
+  public CompletionStage<Wallet> deposit(String walletId, DepositCommand command) {
+    if (!enabled) {
+      return sendOne.apply(walletId, command);
+    }
+
+    var pending = new Pending(command, new CompletableFuture<>());
+    synchronized (waiting) {
+      var queue = waiting.get(walletId);
+      if (queue != null) {
+        queue.add(pending);
+        return pending.reply();
+      }
+      waiting.put(walletId, new ArrayList<>());
+    }
+    flush(walletId, List.of(pending));
+    return pending.reply();
+  }
+
+  private void flush(String walletId, List<Pending> batch) {
+    metrics.increment("wallet-deposit-batching.calls");
+    if (batch.size() > 1) {
+      metrics.increment("wallet-deposit-batching.coalesced-calls");
+    }
+    var commands = batch.stream().map(Pending::command).toList();
+    send(walletId, commands)
+        .whenComplete(
+            (wallet, error) -> {
+              try {
+                for (var pending : batch) {
+                  if (error == null) {
+                    pending.reply().complete(wallet);
+                  } else {
+                    pending.reply().completeExceptionally(error);
+                  }
+                }
+              } finally {
+                var next = nextBatch(walletId);
+                if (next != null) {
+                  flush(walletId, next);
+                }
+              }
+            });
+  }
+
+  /** Sends a batch, turning an exception thrown before the call is made into a failed call. */
+  private CompletionStage<Wallet> send(String walletId, List<DepositCommand> commands) {
+    try {
+      return sendBatch.apply(walletId, commands);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** Takes the next batch of a wallet whose call just completed, or returns null if none waits. */
+  private List<Pending> nextBatch(String walletId) {
+    synchronized (waiting) {
+      var queue = waiting.get(walletId);
+      if (queue.isEmpty()) {
+        waiting.remove(walletId);
+        return null;
+      }
+      var size = Math.min(queue.size(), maxBatchSize);
+      var batch = new ArrayList<>(queue.subList(0, size));
+      queue.subList(0, size).clear();
+      return batch;
+    }
+  }
+}
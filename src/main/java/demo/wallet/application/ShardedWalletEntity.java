@@ -0,0 +1,38 @@
+package demo.wallet.application;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.keyvalueentity.KeyValueEntity;
+import demo.wallet.domain.ShardedWallet;
+
+/**
+ * Layout of a wallet, with the id of the wallet. A wallet is sharded when it is created and stays
+ * so, with the same number of sub-wallets.
+ *
+ * <p>While sharding is enabled, every wallet is created through this entity first, a plain wallet
+ * with a single shard, so that the id can't be taken both by a plain and by a sharded wallet.
+ */
+@ComponentId("sharded-wallet")
+public class ShardedWalletEntity extends KeyValueEntity<ShardedWallet> {
+
+  public Effect<ShardedWallet> create(int shards) {
+    var walletId = commandContext().entityId();
+    if (shards < 1) {
+      return effects().error("A wallet needs at least 1 shard");
+    } else if (currentState() == null) {
+      var layout = new ShardedWallet(walletId, shards);
+      return effects().updateState(layout).thenReply(layout);
+    } else if (currentState().shards() == shards) {
+      return effects().reply(currentState());
+    } else if (currentState().shards() == 1) {
+      return effects().error("Wallet [" + walletId + "] already exists and isn't sharded");
+    } else {
+      return effects()
+          .error("Wallet [" + walletId + "] already has [" + currentState().shards() + "] shards");
+    }
+  }
+
+  /** Number of sub-wallets, 1 for a plain wallet and 0 if the wallet was not created here. */
+  public ReadOnlyEffect<Integer> getShards() {
+    return effects().reply(currentState() == null ? 0 : currentState().shards());
+  }
+}
@@ -0,0 +1,114 @@
+package demo.wallet.application;
+
+import com.typesafe.config.Config;
+import demo.common.Metrics;
+import demo.wallet.domain.Wallet;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Optional in-process cache of wallet states read by the wallet endpoint, configured under {@code
+ * demo.wallet.cache}.
+ *
+ * <p>It holds at most {@code max-size} wallets, evicting the least recently read one, and never
+ * serves a state older than {@code ttl}. {@code WalletCacheInvalidator} also drops a wallet on each
+ * of its events, but only the cache of the service instance that consumes the event, so {@code ttl}
+ * is the staleness bound a reader can rely on. A wallet invalidated while it is being loaded is not
+ * cached: the load may have read it before the event. Hits, misses and evictions are counted in
+ * {@link Metrics}.
+ */
+public final class WalletCache {
+
+  private record Entry(Wallet wallet, long expiresAtNanos) {}
+
+  /** Loads in flight for a wallet, and its generation, bumped by each invalidation meanwhile. */
+  private static final class Loading {
+    int loads;
+    long generation;
+  }
+
+  private final boolean enabled;
+  private final long ttlNanos;
+  private final Map<String, Entry> entries;
+  // only wallets being loaded, guarded by entries
+  private final Map<String, Loading> loading = new HashMap<>();
+  private final Metrics metrics = Metrics.global();
+
+  public WalletCache(boolean enabled, int maxSize, Duration ttl) {
+    this.enabled = enabled;
+    this.ttlNanos = ttl.toNanos();
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxSize) {
+              metrics.increment("wallet-cache.evictions");
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  public static WalletCache fromConfig(Config config) {
+    var cache = config.getConfig("demo.wallet.cache");
+    return new WalletCache(
+        cache.getBoolean("enabled"), cache.getInt("max-size"), cache.getDuration("ttl"));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Returns the cached wallet, or the one returned by {@code load}, which is then cached. */
+  public Wallet get(String walletId, Supplier<Wallet> load) {
+    if (!enabled) {
+      return load.get();
+    }
+
+    var now = System.nanoTime();
+    Loading loads;
+    long generation;
+    synchronized (entries) {
+      var entry = entries.get(walletId);
+      if (entry != null && now - entry.expiresAtNanos() < 0) {
+        metrics.increment("wallet-cache.hits");
+        return entry.wallet();
+      }
+      loads = loading.computeIfAbsent(walletId, __ -> new Loading());
+      loads.loads++;
+      generation = loads.generation;
+    }
+
+    metrics.increment("wallet-cache.misses");
+    Wallet wallet = null;
+    try {
+      wallet = load.get();
+      return wallet;
+    } finally {
+      synchronized (entries) {
+        if (wallet != null && loads.generation == generation) {
+          entries.put(walletId, new Entry(wallet, now + ttlNanos));
+        }
+        if (--loads.loads == 0) {
+          loading.remove(walletId);
+        }
+      }
+    }
+  }
+
+  public void invalidate(String walletId) {
+    if (enabled) {
+      synchronized (entries) {
+        entries.remove(walletId);
+        var loads = loading.get(walletId);
+        if (loads != null) {
+          loads.generation++;
+        }
+      }
+    }
+  }
+}
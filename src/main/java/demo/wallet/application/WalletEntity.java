@@ -5,10 +5,13 @@ import static java.util.function.Function.identity;
 import akka.Done;
 import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.eventsourcedentity.EventSourcedEntity;
+import demo.wallet.domain.DepositBatch;
 import demo.wallet.domain.DepositCommand;
 import demo.wallet.domain.Wallet;
 import demo.wallet.domain.WalletEvent;
 import demo.wallet.domain.WithdrawCommand;
+import java.util.ArrayList;
+import java.util.HashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +22,9 @@ public class WalletEntity extends EventSourcedEntity<Wallet, WalletEvent> {
 
   private final Effect<Done> doneEffect = effects().reply(Done.getInstance());
 
+  /** Transaction id of the opening balance deposit. */
+  public static final String OPENING_BALANCE_TX = "opening-balance";
+
   public Effect<Wallet> create() {
     if (currentState() == null) {
       logger.info("Wallet [{}]: creating", commandContext().entityId());
@@ -28,6 +34,30 @@ public class WalletEntity extends EventSourcedEntity<Wallet, WalletEvent> {
     }
   }
 
+  /**
+   * Creates the wallet with an opening balance, deposited in the same atomic write. Like {@link
+   * #create()}, it only replies with the current state if the wallet already exists, so a
+   * provisioning request can be safely repeated.
+   */
+  public Effect<Wallet> createWithBalance(long openingBalance) {
+    if (openingBalance < 0) {
+      return effects().error("Opening balance can't be negative");
+    } else if (currentState() != null) {
+      return effects().reply(currentState());
+    } else if (openingBalance == 0) {
+      return create();
+    } else {
+      logger.info(
+          "Wallet [{}]: creating with balance [{}]", commandContext().entityId(), openingBalance);
+      return effects()
+          .persist(
+              new WalletEvent.WalletCreated(),
+              new WalletEvent.DepositInitiated(openingBalance, OPENING_BALANCE_TX),
+              new WalletEvent.Deposited(openingBalance, OPENING_BALANCE_TX))
+          .thenReply(identity());
+    }
+  }
+
   private <T> ReadOnlyEffect<T> walletDoesNotExist() {
     return effects().error("Wallet [" + commandContext().entityId() + "] does not exist");
   }
@@ -50,6 +80,33 @@ public class WalletEntity extends EventSourcedEntity<Wallet, WalletEvent> {
     }
   }
 
+  /**
+   * Initiates all deposits of the batch in a single write. Like {@link #deposit}, a deposit whose
+   * transaction was already seen, by this wallet or earlier in the batch, is skipped.
+   */
+  public Effect<Wallet> depositBatch(DepositBatch batch) {
+    if (currentState() == null) {
+      return walletDoesNotExist();
+    }
+
+    var seen = new HashSet<String>();
+    var events = new ArrayList<WalletEvent>(batch.deposits().size());
+    for (var cmd : batch.deposits()) {
+      if (!currentState().alreadySeen(cmd.transactionId()) && seen.add(cmd.transactionId())) {
+        events.add(new WalletEvent.DepositInitiated(cmd.amount(), cmd.transactionId()));
+      }
+    }
+    logger.info(
+        "Wallet [{}]: received batch of [{}] deposits, [{}] new",
+        commandContext().entityId(),
+        batch.deposits().size(),
+        events.size());
+    if (events.isEmpty()) {
+      return effects().reply(currentState());
+    }
+    return effects().persistAll(events).thenReply(identity());
+  }
+
   public Effect<Wallet> withdraw(WithdrawCommand cmd) {
     if (currentState() == null) {
       return walletDoesNotExist();
@@ -131,20 +188,12 @@ public class WalletEntity extends EventSourcedEntity<Wallet, WalletEvent> {
   public Wallet applyEvent(WalletEvent event) {
     return switch (event) {
       case WalletEvent.WalletCreated() -> new Wallet(0);
-
-      case WalletEvent.DepositInitiated(long amount, String txId) ->
-          currentState().addPendingDeposit(amount, txId);
-      case WalletEvent.WithdrawInitiated(long amount, String txId) ->
-          currentState().addPendingWithdraw(amount, txId);
-
-      case WalletEvent.Deposited(long amount, String txId) ->
-          currentState().executeDeposit(amount, txId);
-      case WalletEvent.Withdrawn(long amount, String txId) ->
-          currentState().executeWithdraw(amount, txId);
-
-      case WalletEvent.TransactionCancelled(String txId) -> currentState().cancelTransaction(txId);
-      case WalletEvent.TransactionCompleted(String txId) ->
-          currentState().completeTransaction(txId);
+      case WalletEvent.DepositInitiated __ -> currentState().applyEvent(event);
+      case WalletEvent.WithdrawInitiated __ -> currentState().applyEvent(event);
+      case WalletEvent.Deposited __ -> currentState().applyEvent(event);
+      case WalletEvent.Withdrawn __ -> currentState().applyEvent(event);
+      case WalletEvent.TransactionCancelled __ -> currentState().applyEvent(event);
+      case WalletEvent.TransactionCompleted __ -> currentState().applyEvent(event);
     };
   }
 }
@@ -0,0 +1,111 @@
+package demo.wallet.application;
+
+import akka.javasdk.client.ComponentClient;
+import com.typesafe.config.Config;
+import demo.wallet.domain.ShardedWallet;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Tells the wallet endpoint which wallets are sharded, configured under {@code
+ * demo.wallet.sharding}, without reading {@link ShardedWalletEntity} on every request.
+ *
+ * <p>When sharding is disabled, the default, no wallet is sharded and nothing is looked up. A
+ * layout never changes once created, so sharded wallets are remembered for good. Wallets found not
+ * to be sharded are remembered for {@code unsharded-ttl} only, at most {@code unsharded-max-size}
+ * of them, expired ones being dropped when that many are remembered: a sharded wallet created with
+ * an id looked up before is seen by every service instance within that delay.
+ */
+public final class WalletShards {
+
+  private final boolean enabled;
+  private final Function<String, CompletionStage<Integer>> lookup;
+  private final long unshardedTtlNanos;
+  private final int unshardedMaxSize;
+  private final Map<String, ShardedWallet> sharded = new ConcurrentHashMap<>();
+  // expiry time of the wallets known not to be sharded
+  private final Map<String, Long> unsharded = new ConcurrentHashMap<>();
+
+  public WalletShards(
+      boolean enabled,
+      Function<String, CompletionStage<Integer>> lookup,
+      Duration unshardedTtl,
+      int unshardedMaxSize) {
+    this.enabled = enabled;
+    this.lookup = lookup;
+    this.unshardedTtlNanos = unshardedTtl.toNanos();
+    this.unshardedMaxSize = unshardedMaxSize;
+  }
+
+  public static WalletShards fromConfig(Config config, ComponentClient componentClient) {
+    var sharding = config.getConfig("demo.wallet.sharding");
+    return new WalletShards(
+        sharding.getBoolean("enabled"),
+        walletId ->
+            componentClient
+                .forKeyValueEntity(walletId)
+                .method(ShardedWalletEntity::getShards)
+                .invokeAsync(),
+        sharding.getDuration("unsharded-ttl"),
+        sharding.getInt("unsharded-max-size"));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** The layout of the wallet if it is sharded. */
+  public CompletionStage<Optional<ShardedWallet>> findAsync(String walletId) {
+    if (!enabled) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+    var layout = sharded.get(walletId);
+    if (layout != null) {
+      return CompletableFuture.completedFuture(Optional.of(layout));
+    }
+    var expiresAt = unsharded.get(walletId);
+    if (expiresAt != null && System.nanoTime() - expiresAt < 0) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+
+    return lookup
+        .apply(walletId)
+        .thenApply(
+            shards -> {
+              if (shards > 1) {
+                return Optional.of(created(new ShardedWallet(walletId, shards)));
+              }
+              notSharded(walletId);
+              return Optional.empty();
+            });
+  }
+
+  /** The layout of the wallet if it is sharded. Blocks while the layout is looked up. */
+  public Optional<ShardedWallet> find(String walletId) {
+    return findAsync(walletId).toCompletableFuture().join();
+  }
+
+  private void notSharded(String walletId) {
+    var now = System.nanoTime();
+    if (unsharded.size() >= unshardedMaxSize) {
+      unsharded.values().removeIf(expiresAt -> now - expiresAt >= 0);
+      if (unsharded.size() >= unshardedMaxSize) {
+        // still full: it will be looked up again next time
+        return;
+      }
+    }
+    unsharded.put(walletId, now + unshardedTtlNanos);
+  }
+
+  /** Remembers a layout created by this service instance. */
+  public ShardedWallet created(ShardedWallet layout) {
+    sharded.put(layout.walletId(), layout);
+    unsharded.remove(layout.walletId());
+    return layout;
+  }
+}
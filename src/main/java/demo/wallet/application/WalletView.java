@@ -7,7 +7,9 @@ import akka.javasdk.view.TableUpdater;
 import akka.javasdk.view.View;
 import demo.wallet.api.WalletBalance;
 import demo.wallet.api.WalletsList;
+import demo.wallet.api.WalletsPage;
 import demo.wallet.domain.WalletEvent;
+import java.util.List;
 
 @ComponentId("wallet-view")
 public class WalletView extends View {
@@ -17,6 +19,46 @@ public class WalletView extends View {
     return queryResult();
   }
 
+  /** An empty {@code pageToken} requests the first page. */
+  public record BalancePageQuery(long amount, int pageSize, String pageToken) {}
+
+  // the page token is an offset: balances changing between pages can skip or repeat wallets
+  @Query(
+      """
+      SELECT * AS wallets, next_page_token() AS nextPageToken, has_more() AS hasMore,
+        total_count() AS totalCount
+      FROM wallet_view
+      WHERE balance > :amount
+      ORDER BY balance DESC, id
+      LIMIT :pageSize
+      OFFSET page_token_offset(:pageToken)
+      """)
+  public QueryEffect<WalletsPage> getWalletsPage(BalancePageQuery query) {
+    return queryResult();
+  }
+
+  @Query("SELECT * FROM wallet_view WHERE balance > :amount ORDER BY balance DESC, id")
+  public QueryStreamEffect<WalletBalance> streamWallets(long amount) {
+    return queryStreamResult();
+  }
+
+  public record WalletIds(List<String> ids) {}
+
+  /** The current balance of the given wallets, then every change to it while the stream is open. */
+  @Query(value = "SELECT * FROM wallet_view WHERE id = ANY(:ids)", streamUpdates = true)
+  public QueryStreamEffect<WalletBalance> feedByIds(WalletIds walletIds) {
+    return queryStreamResult();
+  }
+
+  /**
+   * The wallets with a balance higher than {@code amount}, then every wallet whose balance changes
+   * and is still higher, while the stream is open.
+   */
+  @Query(value = "SELECT * FROM wallet_view WHERE balance > :amount", streamUpdates = true)
+  public QueryStreamEffect<WalletBalance> feedHigherThan(long amount) {
+    return queryStreamResult();
+  }
+
   @Consume.FromEventSourcedEntity(WalletEntity.class)
   public static class WalletsByBalance extends TableUpdater<WalletBalance> {
 
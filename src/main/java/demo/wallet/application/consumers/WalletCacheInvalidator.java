@@ -0,0 +1,35 @@
+package demo.wallet.application.consumers;
+
+import akka.javasdk.annotations.ComponentId;
+import akka.javasdk.annotations.Consume;
+import akka.javasdk.consumer.Consumer;
+import demo.wallet.application.WalletCache;
+import demo.wallet.application.WalletEntity;
+import demo.wallet.domain.WalletEvent;
+
+/**
+ * Drops a wallet from this instance's {@link WalletCache} whenever the wallet changes.
+ *
+ * <p>Like any consumer, it reads every wallet event and tracks its offset, whether the cache is
+ * enabled or not: a component can't be turned off by configuration. With the cache disabled, the
+ * default, it acknowledges the events without touching the cache, so the cost is the event stream
+ * and the offset writes only.
+ */
+@ComponentId("wallet-cache-invalidator")
+@Consume.FromEventSourcedEntity(WalletEntity.class)
+public class WalletCacheInvalidator extends Consumer {
+
+  private final WalletCache walletCache;
+
+  public WalletCacheInvalidator(WalletCache walletCache) {
+    this.walletCache = walletCache;
+  }
+
+  public Effect onEvent(WalletEvent event) {
+    if (!walletCache.isEnabled()) {
+      return effects().ignore();
+    }
+    messageContext().eventSubject().ifPresent(walletCache::invalidate);
+    return effects().done();
+  }
+}
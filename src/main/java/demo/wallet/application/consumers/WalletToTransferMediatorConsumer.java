@@ -4,6 +4,7 @@ import akka.javasdk.annotations.ComponentId;
 import akka.javasdk.annotations.Consume;
 import akka.javasdk.client.ComponentClient;
 import akka.javasdk.consumer.Consumer;
+import demo.common.Metrics;
 import demo.transfer.api.TransferId;
 import demo.transfer.application.TransferMediatorEntity;
 import demo.wallet.application.WalletEntity;
@@ -18,6 +19,7 @@ public class WalletToTransferMediatorConsumer extends Consumer {
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
   private final ComponentClient componentClient;
+  private final Metrics metrics = Metrics.global();
 
   public WalletToTransferMediatorConsumer(ComponentClient componentClient) {
     this.componentClient = componentClient;
@@ -31,6 +33,11 @@ public class WalletToTransferMediatorConsumer extends Consumer {
     } else {
       var walletId = messageContext().eventSubject().get();
       logger.info("Received event [{}] from wallet [{}]", event, walletId);
+      messageContext()
+          .metadata()
+          .asCloudEvent()
+          .time()
+          .ifPresent(time -> metrics.recordSince("hop.wallet-to-transfer.lag", time.toInstant()));
       return switch (event) {
         case WalletEvent.DepositInitiated evt -> join(evt.transactionId(), walletId);
         case WalletEvent.WithdrawInitiated evt -> join(evt.transactionId(), walletId);
@@ -44,10 +51,13 @@ public class WalletToTransferMediatorConsumer extends Consumer {
   private Effect join(String transactionId, String walletId) {
     if (TransferId.isMediatorId(transactionId)) {
       var done =
-          componentClient
-              .forEventSourcedEntity(transactionId)
-              .method(TransferMediatorEntity::participantJoined)
-              .invokeAsync(walletId);
+          metrics.time(
+              "hop.wallet-to-transfer.handle",
+              () ->
+                  componentClient
+                      .forEventSourcedEntity(transactionId)
+                      .method(TransferMediatorEntity::participantJoined)
+                      .invokeAsync(walletId));
       return effects().asyncDone(done);
     }
     // a wallet can participate in transfers that are not managed by the TransferMediatorEntity
@@ -58,10 +68,13 @@ public class WalletToTransferMediatorConsumer extends Consumer {
   private Effect execute(String transactionId, String walletId) {
     if (TransferId.isMediatorId(transactionId)) {
       var done =
-          componentClient
-              .forEventSourcedEntity(transactionId)
-              .method(TransferMediatorEntity::confirmExecution)
-              .invokeAsync(walletId);
+          metrics.time(
+              "hop.wallet-to-transfer.handle",
+              () ->
+                  componentClient
+                      .forEventSourcedEntity(transactionId)
+                      .method(TransferMediatorEntity::confirmExecution)
+                      .invokeAsync(walletId));
 
       return effects().asyncDone(done);
     }
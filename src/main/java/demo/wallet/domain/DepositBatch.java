@@ -0,0 +1,5 @@
+package demo.wallet.domain;
+
+import java.util.List;
+
+public record DepositBatch(List<DepositCommand> deposits) {}
@@ -0,0 +1,113 @@
+package demo.wallet.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import demo.common.PersistentMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ids of the transactions executed by a wallet and not completed yet, used to detect duplicated
+ * deposit and withdraw requests.
+ *
+ * <p>An id stays until its transaction completes, as in the list this replaces: forgetting it
+ * earlier would let a redelivered deposit or withdrawal through as a new one, leaving a pending
+ * deposit or reserved funds that the completed transfer never settles. The set is therefore bounded
+ * by the transfers in flight on the wallet rather than by a capacity. Lookups and updates take
+ * logarithmic time on a persistent map, so no update copies the whole set.
+ *
+ * <p>It serializes as a plain JSON array of ids, oldest first, the format of the list it replaces,
+ * so that service instances running either version read each other's snapshots. Snapshots written
+ * meanwhile with an object of {@code previous} and {@code current} ids also read back.
+ */
+public final class ExecutedTransactions {
+
+  private static final String PREVIOUS = "previous";
+  private static final String CURRENT = "current";
+
+  private static final ExecutedTransactions EMPTY =
+      new ExecutedTransactions(PersistentMap.empty(), 0);
+
+  // id -> order of execution, to write the ids oldest first
+  private final PersistentMap<String, Long> ids;
+  private final long next;
+
+  private ExecutedTransactions(PersistentMap<String, Long> ids, long next) {
+    this.ids = ids;
+    this.next = next;
+  }
+
+  public static ExecutedTransactions empty() {
+    return EMPTY;
+  }
+
+  /** Ids executed in the given order, oldest first. */
+  @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+  public static ExecutedTransactions of(Collection<String> ids) {
+    var executed = EMPTY;
+    for (var id : ids) {
+      executed = executed.add(id);
+    }
+    return executed;
+  }
+
+  // form of the snapshots written for a while, with two generations of ids
+  @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+  static ExecutedTransactions fromJson(Map<String, List<String>> generations) {
+    var ids = new ArrayList<String>();
+    ids.addAll(generations.getOrDefault(PREVIOUS, List.of()));
+    ids.addAll(generations.getOrDefault(CURRENT, List.of()));
+    return of(ids);
+  }
+
+  public boolean contains(String transactionId) {
+    return ids.containsKey(transactionId);
+  }
+
+  public ExecutedTransactions add(String transactionId) {
+    if (contains(transactionId)) {
+      return this;
+    }
+    return new ExecutedTransactions(ids.plus(transactionId, next), next + 1);
+  }
+
+  public ExecutedTransactions remove(String transactionId) {
+    if (!contains(transactionId)) {
+      return this;
+    }
+    return new ExecutedTransactions(ids.minus(transactionId), next);
+  }
+
+  public int size() {
+    return ids.size();
+  }
+
+  public boolean isEmpty() {
+    return ids.isEmpty();
+  }
+
+  /** The ids, oldest first. */
+  @JsonValue
+  public List<String> toList() {
+    var entries = new ArrayList<>(ids.entrySet());
+    entries.sort(Map.Entry.comparingByValue());
+    return entries.stream().map(Map.Entry::getKey).toList();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof ExecutedTransactions that && ids.keySet().equals(that.ids.keySet());
+  }
+
+  @Override
+  public int hashCode() {
+    return ids.keySet().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "ExecutedTransactions" + toList();
+  }
+}
@@ -0,0 +1,104 @@
+package demo.wallet.domain;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Layout of a wallet whose balance is split over {@code shards} sub-wallets, each an ordinary
+ * wallet entity with its own id, so deposits to different sub-wallets don't queue on one entity.
+ *
+ * <p>A deposit goes to the sub-wallet picked by its transaction id, so a repeated deposit lands on
+ * the same sub-wallet and is recognised there. A withdrawal is served by one sub-wallet when one
+ * holds enough, otherwise it is split into legs over several of them, all part of the same
+ * transfer.
+ *
+ * <p>A layout with a single shard stands for a plain wallet, whose id is taken.
+ */
+public record ShardedWallet(String walletId, int shards) {
+
+  private static final String SEPARATOR = "#";
+
+  public record Leg(String shardId, long amount) {}
+
+  public record Move(String from, String to, long amount) {}
+
+  /** Whether a wallet can take the id: the separator is kept for the ids of sub-wallets. */
+  public static boolean isValidWalletId(String walletId) {
+    return !walletId.contains(SEPARATOR);
+  }
+
+  public String shardId(int shard) {
+    return walletId + SEPARATOR + shard;
+  }
+
+  public List<String> shardIds() {
+    return IntStream.range(0, shards).mapToObj(this::shardId).toList();
+  }
+
+  public String shardFor(String transactionId) {
+    return shardId(Math.floorMod(transactionId.hashCode(), shards));
+  }
+
+  /**
+   * Legs withdrawing {@code amount} from the sub-wallets with the given balances: only the
+   * sub-wallet of the transaction if it holds enough, otherwise the richest ones first. Empty if
+   * all of them together don't hold enough.
+   */
+  public List<Leg> planWithdraw(Map<String, Long> balances, String transactionId, long amount) {
+    var preferred = shardFor(transactionId);
+    if (balances.getOrDefault(preferred, 0L) >= amount) {
+      return List.of(new Leg(preferred, amount));
+    }
+
+    var legs = new ArrayList<Leg>();
+    var remaining = amount;
+    for (var shard : byBalanceDescending(balances)) {
+      if (remaining == 0) break;
+      var leg = Math.min(remaining, shard.getValue());
+      if (leg > 0) {
+        legs.add(new Leg(shard.getKey(), leg));
+        remaining -= leg;
+      }
+    }
+    return remaining == 0 ? legs : List.of();
+  }
+
+  /**
+   * Moves between sub-wallets that even out the given balances, each sub-wallet ending with the
+   * average balance (the remainder of the division stays where it is).
+   */
+  public List<Move> planRebalance(Map<String, Long> balances) {
+    var total = balances.values().stream().mapToLong(Long::longValue).sum();
+    var target = total / balances.size();
+
+    // what each sub-wallet has to give or take, as legs
+    var givers = new ArrayDeque<Leg>();
+    var takers = new ArrayDeque<Leg>();
+    for (var shard : byBalanceDescending(balances)) {
+      var balance = shard.getValue();
+      if (balance > target) givers.add(new Leg(shard.getKey(), balance - target));
+      else if (balance < target) takers.add(new Leg(shard.getKey(), target - balance));
+    }
+
+    var moves = new ArrayList<Move>();
+    while (!givers.isEmpty() && !takers.isEmpty()) {
+      var giver = givers.poll();
+      var taker = takers.poll();
+      var amount = Math.min(giver.amount(), taker.amount());
+      moves.add(new Move(giver.shardId(), taker.shardId(), amount));
+      if (giver.amount() > amount) givers.push(new Leg(giver.shardId(), giver.amount() - amount));
+      if (taker.amount() > amount) takers.push(new Leg(taker.shardId(), taker.amount() - amount));
+    }
+    return moves;
+  }
+
+  private static List<Map.Entry<String, Long>> byBalanceDescending(Map<String, Long> balances) {
+    return balances.entrySet().stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+        .toList();
+  }
+}
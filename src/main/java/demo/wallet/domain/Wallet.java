@@ -1,27 +1,121 @@
 package demo.wallet.domain;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import demo.common.PersistentMap;
+
+/**
+ * Wallet state.
+ *
+ * <p>{@code reservedFunds} and {@code pendingDeposits} are running totals of the pending withdraw
+ * and deposit transactions, maintained on every transition so that reading them does not need to
+ * walk the pending transactions. When assertions are enabled (as they are in tests), every new
+ * state checks them against the pending transactions.
+ *
+ * <p>The wallet is also the snapshot of {@code WalletEntity}, so its JSON form is kept compact:
+ * empty collections are left out and a transaction doesn't repeat what its type already says.
+ * Snapshots written before that still read the same.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
 public record Wallet(
-    long balance, List<String> executedTransactions, Map<String, Transaction> pendingTransactions) {
+    long balance,
+    ExecutedTransactions executedTransactions,
+    PersistentMap<String, Transaction> pendingTransactions,
+    long reservedFunds,
+    long pendingDeposits) {
+
+  public Wallet {
+    // left out of the snapshot when empty
+    if (executedTransactions == null) {
+      executedTransactions = ExecutedTransactions.empty();
+    }
+    if (pendingTransactions == null) {
+      pendingTransactions = PersistentMap.empty();
+    }
+    // state persisted before the totals were introduced has none: derive them once
+    if (reservedFunds == 0 && pendingDeposits == 0 && !pendingTransactions.isEmpty()) {
+      reservedFunds = sumPending(pendingTransactions, Transaction.TransactionType.WITHDRAW);
+      pendingDeposits = sumPending(pendingTransactions, Transaction.TransactionType.DEPOSIT);
+    }
+    assert reservedFunds == sumPending(pendingTransactions, Transaction.TransactionType.WITHDRAW)
+        : "reservedFunds [" + reservedFunds + "] does not match pending withdrawals";
+    assert pendingDeposits == sumPending(pendingTransactions, Transaction.TransactionType.DEPOSIT)
+        : "pendingDeposits [" + pendingDeposits + "] does not match pending deposits";
+  }
 
   public Wallet(long balance) {
-    this(balance, List.of(), Map.of());
+    this(balance, ExecutedTransactions.empty(), PersistentMap.empty(), 0, 0);
+  }
+
+  private static long sumPending(
+      PersistentMap<String, Transaction> pendingTransactions, Transaction.TransactionType type) {
+    return pendingTransactions.values().stream()
+        .filter(tx -> tx.type() == type)
+        .mapToLong(Transaction::amount)
+        .sum();
   }
 
   private Wallet addPendingTransaction(Transaction transaction) {
-    var tmpMap = new HashMap<>(pendingTransactions);
-    tmpMap.put(transaction.transactionId, transaction);
-    return new Wallet(balance, executedTransactions, Map.copyOf(tmpMap));
+    var newPending = pendingTransactions.plus(transaction.transactionId, transaction);
+    if (transaction.isWithdraw()) {
+      return new Wallet(
+          balance,
+          executedTransactions,
+          newPending,
+          reservedFunds + transaction.amount,
+          pendingDeposits);
+    } else {
+      return new Wallet(
+          balance,
+          executedTransactions,
+          newPending,
+          reservedFunds,
+          pendingDeposits + transaction.amount);
+    }
   }
 
   private Wallet removePendingTransaction(String transactionId) {
-    var tmpMap = new HashMap<>(pendingTransactions);
-    tmpMap.remove(transactionId);
-    return new Wallet(balance, executedTransactions, Map.copyOf(tmpMap));
+    var transaction = pendingTransactions.get(transactionId);
+    if (transaction == null) {
+      return this;
+    }
+    var newPending = pendingTransactions.minus(transactionId);
+    if (transaction.isWithdraw()) {
+      return new Wallet(
+          balance,
+          executedTransactions,
+          newPending,
+          reservedFunds - transaction.amount,
+          pendingDeposits);
+    } else {
+      return new Wallet(
+          balance,
+          executedTransactions,
+          newPending,
+          reservedFunds,
+          pendingDeposits - transaction.amount);
+    }
+  }
+
+  /**
+   * Returns the wallet after the given event, replayed or just persisted by the entity. {@code
+   * WalletCreated} is only ever the first event of a wallet and is applied by the entity itself.
+   */
+  public Wallet applyEvent(WalletEvent event) {
+    return switch (event) {
+      case WalletEvent.WalletCreated() -> this;
+
+      case WalletEvent.DepositInitiated(long amount, String txId) ->
+          addPendingDeposit(amount, txId);
+      case WalletEvent.WithdrawInitiated(long amount, String txId) ->
+          addPendingWithdraw(amount, txId);
+
+      case WalletEvent.Deposited(long amount, String txId) -> executeDeposit(amount, txId);
+      case WalletEvent.Withdrawn(long amount, String txId) -> executeWithdraw(amount, txId);
+
+      case WalletEvent.TransactionCancelled(String txId) -> cancelTransaction(txId);
+      case WalletEvent.TransactionCompleted(String txId) -> completeTransaction(txId);
+    };
   }
 
   public boolean alreadySeen(String transactionId) {
@@ -37,14 +131,15 @@ public record Wallet(
   }
 
   private Wallet addExecutedTransaction(String txId) {
-    var tmpList = new ArrayList<>(executedTransactions);
-    tmpList.add(txId);
-    return new Wallet(balance, List.copyOf(tmpList), pendingTransactions);
+    return withExecutedTransactions(executedTransactions.add(txId));
   }
 
   private Wallet removeExecutedTransaction(String transactionId) {
-    var otherTx = executedTransactions.stream().filter(t -> !t.equals(transactionId)).toList();
-    return new Wallet(balance, otherTx, pendingTransactions);
+    return withExecutedTransactions(executedTransactions.remove(transactionId));
+  }
+
+  private Wallet withExecutedTransactions(ExecutedTransactions executed) {
+    return new Wallet(balance, executed, pendingTransactions, reservedFunds, pendingDeposits);
   }
 
   public Wallet addPendingDeposit(long amount, String txId) {
@@ -79,13 +174,6 @@ public record Wallet(
     return removeExecutedTransaction(txId);
   }
 
-  public long reservedFunds() {
-    return pendingTransactions.values().stream()
-        .filter(Transaction::isWithdraw)
-        .mapToLong(Transaction::amount)
-        .sum();
-  }
-
   public boolean isExecutedTransaction(String transactionId) {
     return executedTransactions.contains(transactionId);
   }
@@ -114,20 +202,32 @@ public record Wallet(
       WITHDRAW
     }
 
+    @JsonIgnore
     public boolean isWithdraw() {
       return type == TransactionType.WITHDRAW;
     }
 
+    @JsonIgnore
     public boolean isDeposit() {
       return !isWithdraw();
     }
   }
 
   public Wallet increaseBalance(long amount) {
-    return new Wallet(balance + amount);
+    return new Wallet(
+        balance + amount,
+        executedTransactions,
+        pendingTransactions,
+        reservedFunds,
+        pendingDeposits);
   }
 
   public Wallet decreaseBalance(long amount) {
-    return new Wallet(balance - amount);
+    return new Wallet(
+        balance - amount,
+        executedTransactions,
+        pendingTransactions,
+        reservedFunds,
+        pendingDeposits);
   }
 }
@@ -0,0 +1,409 @@
+package demo;
+
+import akka.javasdk.http.StrictResponse;
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import demo.common.Metrics;
+import demo.transfer.api.TransferRequest;
+import demo.transfer.domain.TransferState;
+import demo.transfer.domain.TransferStatus;
+import demo.transfer.domain.TransferWorkflowState;
+import demo.wallet.api.DepositRequest;
+import demo.wallet.api.WalletBalance;
+import demo.wallet.api.WithdrawRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Load generator driving the wallet and transfer HTTP APIs of a service started by the TestKit.
+ *
+ * <p>It keeps {@code load.concurrency} requests in flight, picking each one from a weighted mix of
+ * operations and picking wallets with a Zipf distribution, so that a few hot wallets take most of
+ * the traffic. It reports the throughput, the latency of every operation and, for mediator and
+ * workflow transfers, the time from the request until the transfer is completed.
+ *
+ * <p>Run with {@code mvn test -Pbenchmark -Dtest=LoadBenchmark}, tuned with system properties:
+ *
+ * <ul>
+ *   <li>{@code load.wallets} (100): number of funded wallets the operations pick from, at least 2
+ *   <li>{@code load.operations} (5000): measured operations, after {@code load.warmup} (500)
+ *   <li>{@code load.concurrency} (32): requests in flight
+ *   <li>{@code load.skew} (1.0): Zipf exponent of the wallet choice, 0 for a uniform one
+ *   <li>{@code load.mix} ({@code create=5,deposit=30,withdraw=20,transfer=35,workflow=10}):
+ *       relative weights of the operations
+ *   <li>{@code load.expiry-mode} ({@code timers}): {@code demo.transfer.expiry.mode} of the
+ *       service, the report includes the timer store operations per mediator transfer it led to
+ * </ul>
+ */
+@Tag("benchmark")
+public class LoadBenchmark extends TestKitSupport {
+
+  private enum Operation {
+    CREATE,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    WORKFLOW
+  }
+
+  private static final long INITIAL_BALANCE = 1_000_000_000;
+  private static final Duration POLL_INTERVAL = Duration.ofMillis(2);
+
+  private final int wallets = Integer.getInteger("load.wallets", 100);
+  private final int operations = Integer.getInteger("load.operations", 5000);
+  private final int warmup = Integer.getInteger("load.warmup", 500);
+  private final int concurrency = Integer.getInteger("load.concurrency", 32);
+  private final double skew = Double.parseDouble(System.getProperty("load.skew", "1.0"));
+  private final Map<Operation, Integer> mix =
+      parseMix(
+          System.getProperty(
+              "load.mix", "create=5,deposit=30,withdraw=20,transfer=35,workflow=10"));
+
+  private final String expiryMode = System.getProperty("load.expiry-mode", "timers");
+
+  private final AtomicInteger created = new AtomicInteger();
+  private ZipfSampler walletSampler;
+
+  @Override
+  protected TestKit.Settings testKitSettings() {
+    return TestKit.Settings.DEFAULT.withAdditionalConfig(
+        "demo.transfer.expiry.mode = " + expiryMode);
+  }
+
+  @Test
+  public void runLoad() throws Exception {
+    if (wallets < 2) {
+      // transfers pick two different wallets
+      throw new IllegalArgumentException("load.wallets must be at least 2, was " + wallets);
+    }
+    walletSampler = new ZipfSampler(wallets, skew);
+    fundWallets();
+
+    run(warmup);
+    // the service runs in this JVM, so its metrics can be read directly
+    var before = Metrics.global().snapshot().counters();
+    var results = run(operations);
+    var after = Metrics.global().snapshot().counters();
+    results.report();
+
+    var transfers = delta(before, after, "transfers.created");
+    if (transfers > 0) {
+      System.out.printf(
+          "timer store operations (%s): %d, %.2f per mediator transfer%n",
+          expiryMode,
+          delta(before, after, "transfer-expiry.timer-ops"),
+          (double) delta(before, after, "transfer-expiry.timer-ops") / transfers);
+    }
+  }
+
+  private static long delta(Map<String, Long> before, Map<String, Long> after, String counter) {
+    return after.getOrDefault(counter, 0L) - before.getOrDefault(counter, 0L);
+  }
+
+  private static Map<Operation, Integer> parseMix(String mix) {
+    var weights = new EnumMap<Operation, Integer>(Operation.class);
+    for (var entry : mix.split(",")) {
+      var parts = entry.trim().split("=");
+      var weight = Integer.parseInt(parts[1].trim());
+      if (weight > 0) {
+        weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+      }
+    }
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("load.mix has no operation with a positive weight");
+    }
+    return weights;
+  }
+
+  private Operation nextOperation() {
+    var total = mix.values().stream().mapToInt(Integer::intValue).sum();
+    var pick = ThreadLocalRandom.current().nextInt(total);
+    for (var entry : mix.entrySet()) {
+      pick -= entry.getValue();
+      if (pick < 0) {
+        return entry.getKey();
+      }
+    }
+    throw new IllegalStateException("unreachable");
+  }
+
+  private String walletId(int i) {
+    return "load-wallet-" + i;
+  }
+
+  private String hotWallet() {
+    return walletId(walletSampler.next());
+  }
+
+  private String otherHotWallet(String walletId) {
+    while (true) {
+      var other = hotWallet();
+      if (!other.equals(walletId)) {
+        return other;
+      }
+    }
+  }
+
+  private void fundWallets() {
+    var funded = new ArrayList<CompletableFuture<?>>();
+    for (int i = 0; i < wallets; i++) {
+      var walletId = walletId(i);
+      funded.add(
+          httpClient
+              .POST("/wallet/" + walletId + "/create")
+              .invokeAsync()
+              .thenCompose(__ -> deposit(walletId, INITIAL_BALANCE))
+              .thenCompose(__ -> awaitBalance(walletId, INITIAL_BALANCE))
+              .toCompletableFuture());
+    }
+    CompletableFuture.allOf(funded.toArray(CompletableFuture[]::new)).join();
+  }
+
+  /** A deposit is only added to the balance once the mediator confirmed it. */
+  private CompletionStage<Void> awaitBalance(String walletId, long balance) {
+    return httpClient
+        .GET("/wallet/" + walletId + "/balance")
+        .responseBodyAs(WalletBalance.class)
+        .invokeAsync()
+        .thenCompose(
+            response ->
+                response.body().balance() >= balance
+                    ? CompletableFuture.completedFuture(null)
+                    : later(() -> awaitBalance(walletId, balance)));
+  }
+
+  private <T> CompletionStage<T> later(Supplier<CompletionStage<T>> next) {
+    return CompletableFuture.supplyAsync(
+            next,
+            CompletableFuture.delayedExecutor(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS))
+        .thenCompose(s -> s);
+  }
+
+  private CompletionStage<StrictResponse<akka.util.ByteString>> deposit(
+      String walletId, long amount) {
+    return httpClient
+        .POST("/wallet/" + walletId + "/deposit")
+        .withRequestBody(new DepositRequest(amount, UUID.randomUUID().toString()))
+        .invokeAsync();
+  }
+
+  private Results run(int count) throws Exception {
+    var results = new Results();
+    var inFlight = new Semaphore(concurrency);
+    var completions = new ConcurrentLinkedQueue<CompletableFuture<?>>();
+    var start = System.nanoTime();
+
+    for (int i = 0; i < count; i++) {
+      inFlight.acquire();
+      var operation = nextOperation();
+      var operationStart = System.nanoTime();
+      CompletionStage<?> call;
+      try {
+        call = call(operation, results, completions);
+      } catch (RuntimeException e) {
+        call = CompletableFuture.failedFuture(e);
+      }
+      call.whenComplete(
+          (response, error) -> {
+            results.record(operation, operationStart, error == null && isSuccess(response));
+            inFlight.release();
+          });
+    }
+    inFlight.acquire(concurrency);
+    results.elapsedNanos = System.nanoTime() - start;
+
+    CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new)).join();
+    return results;
+  }
+
+  private static boolean isSuccess(Object response) {
+    return !(response instanceof StrictResponse<?> strict) || strict.status().isSuccess();
+  }
+
+  private CompletionStage<?> call(
+      Operation operation,
+      Results results,
+      ConcurrentLinkedQueue<CompletableFuture<?>> completions) {
+    return switch (operation) {
+      case CREATE ->
+          httpClient
+              .POST("/wallet/load-new-" + created.incrementAndGet() + "/create")
+              .invokeAsync();
+      case DEPOSIT -> deposit(hotWallet(), 1);
+      case WITHDRAW ->
+          httpClient
+              .POST("/wallet/" + hotWallet() + "/withdraw")
+              .withRequestBody(new WithdrawRequest(1, UUID.randomUUID().toString()))
+              .invokeAsync();
+      case TRANSFER, WORKFLOW -> {
+        var from = hotWallet();
+        var request = new TransferRequest(1, from, otherHotWallet(from));
+        var transferId = UUID.randomUUID().toString();
+        var path =
+            operation == Operation.TRANSFER
+                ? "/transfer/" + transferId
+                : "/transfer/" + transferId + "/workflow";
+        var start = System.nanoTime();
+        yield httpClient
+            .POST(path)
+            .withRequestBody(request)
+            .invokeAsync()
+            .whenComplete(
+                (response, error) -> {
+                  if (error == null && response.status().isSuccess()) {
+                    completions.add(
+                        awaitCompletion(operation, path)
+                            .thenAccept(
+                                completed -> results.recordCompletion(operation, start, completed))
+                            .toCompletableFuture());
+                  }
+                });
+      }
+    };
+  }
+
+  /** Completes with whether the transfer completed, as opposed to being cancelled. */
+  private CompletionStage<Boolean> awaitCompletion(Operation operation, String path) {
+    CompletionStage<TransferState.Status> status;
+    if (operation == Operation.TRANSFER) {
+      status =
+          httpClient
+              .GET(path)
+              .responseBodyAs(TransferStatus.class)
+              .invokeAsync()
+              .thenApply(response -> response.body().status());
+    } else {
+      status =
+          httpClient
+              .GET(path)
+              .responseBodyAs(TransferWorkflowState.class)
+              .invokeAsync()
+              .thenApply(
+                  response ->
+                      switch (response.body().status()) {
+                        case COMPLETED -> TransferState.Status.COMPLETED;
+                        case CANCELLED -> TransferState.Status.CANCELLED;
+                        default -> TransferState.Status.PENDING;
+                      });
+    }
+    return status.thenCompose(
+        current ->
+            current.isTerminated()
+                ? CompletableFuture.completedFuture(current == TransferState.Status.COMPLETED)
+                : later(() -> awaitCompletion(operation, path)));
+  }
+
+  private final class Results {
+    final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    final Map<Operation, Histogram> completionTimes = new EnumMap<>(Operation.class);
+    final AtomicLong cancelledTransfers = new AtomicLong();
+    long elapsedNanos;
+
+    Results() {
+      for (var operation : Operation.values()) {
+        latencies.put(operation, new ConcurrentHistogram(3));
+        errors.put(operation, new AtomicLong());
+      }
+      completionTimes.put(Operation.TRANSFER, new ConcurrentHistogram(3));
+      completionTimes.put(Operation.WORKFLOW, new ConcurrentHistogram(3));
+    }
+
+    void record(Operation operation, long start, boolean success) {
+      latencies.get(operation).recordValue((System.nanoTime() - start) / 1000);
+      if (!success) {
+        errors.get(operation).incrementAndGet();
+      }
+    }
+
+    void recordCompletion(Operation operation, long start, boolean completed) {
+      if (completed) {
+        completionTimes.get(operation).recordValue((System.nanoTime() - start) / 1000);
+      } else {
+        cancelledTransfers.incrementAndGet();
+      }
+    }
+
+    void report() {
+      var total = latencies.values().stream().mapToLong(Histogram::getTotalCount).sum();
+      System.out.printf(
+          "%d operations in %.2f s: %.0f ops/s (%d wallets, skew %.2f, %d in flight)%n",
+          total, elapsedNanos / 1e9, total / (elapsedNanos / 1e9), wallets, skew, concurrency);
+
+      System.out.println(
+          "latency (ms)          count   errors      p50      p90      p99      max");
+      for (var operation : Operation.values()) {
+        report(
+            operation.name().toLowerCase(), latencies.get(operation), errors.get(operation).get());
+      }
+
+      System.out.println("transfer completion (ms)");
+      report("mediator", completionTimes.get(Operation.TRANSFER), 0);
+      report("workflow", completionTimes.get(Operation.WORKFLOW), 0);
+      System.out.println("cancelled transfers: " + cancelledTransfers.get());
+    }
+
+    private static void report(String name, Histogram histogram, long errors) {
+      if (histogram.getTotalCount() == 0) {
+        return;
+      }
+      System.out.printf(
+          "%-18s %8d %8d %8.2f %8.2f %8.2f %8.2f%n",
+          name,
+          histogram.getTotalCount(),
+          errors,
+          histogram.getValueAtPercentile(50) / 1000.0,
+          histogram.getValueAtPercentile(90) / 1000.0,
+          histogram.getValueAtPercentile(99) / 1000.0,
+          histogram.getMaxValue() / 1000.0);
+    }
+  }
+
+  /** Picks {@code 0..n-1} with probability proportional to {@code 1 / (i + 1)^exponent}. */
+  private static final class ZipfSampler {
+    private final double[] cumulative;
+
+    ZipfSampler(int n, double exponent) {
+      cumulative = new double[n];
+      var sum = 0.0;
+      for (int i = 0; i < n; i++) {
+        sum += 1 / Math.pow(i + 1, exponent);
+        cumulative[i] = sum;
+      }
+      for (int i = 0; i < n; i++) {
+        cumulative[i] /= sum;
+      }
+    }
+
+    int next() {
+      var pick = ThreadLocalRandom.current().nextDouble();
+      int low = 0;
+      int high = cumulative.length - 1;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (cumulative[mid] < pick) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
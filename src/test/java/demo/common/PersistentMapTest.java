@@ -0,0 +1,102 @@
+package demo.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.JsonSupport;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/** Checks the map against a {@link HashMap} given the same updates. */
+public class PersistentMapTest {
+
+  /** A key with a chosen hash code, so that keys can collide on all their hash bits or some. */
+  private record Key(int id, int hash) {
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  @Test
+  public void behaveLikeHashMap() {
+    var random = new Random(42);
+    for (var hashes : new int[] {1 << 30, 64, 4}) {
+      var expected = new HashMap<Key, Integer>();
+      var map = PersistentMap.<Key, Integer>empty();
+      for (int i = 0; i < 20000; i++) {
+        var id = random.nextInt(500);
+        // few distinct hashes, differing in the low or the high bits
+        var key = new Key(id, random.nextBoolean() ? id % hashes : (id % hashes) << 20);
+        if (random.nextInt(3) == 0) {
+          expected.remove(key);
+          map = map.minus(key);
+        } else {
+          expected.put(key, i);
+          map = map.plus(key, i);
+        }
+        assertEquals(expected.get(key), map.get(key));
+        assertEquals(expected.size(), map.size());
+      }
+      assertSameContent(expected, map);
+
+      // removing everything collapses the trie back to the empty map
+      for (var key : new HashSet<>(expected.keySet())) {
+        map = map.minus(key);
+        expected.remove(key);
+        assertSameContent(expected, map);
+      }
+      assertSame(PersistentMap.empty(), map);
+    }
+  }
+
+  @Test
+  public void leavePreviousVersionsUnchanged() {
+    var a = new Key(1, 7);
+    var b = new Key(2, 7);
+    var one = PersistentMap.<Key, String>empty().plus(a, "a");
+    var two = one.plus(b, "b");
+    var updated = two.plus(a, "A");
+    var removed = updated.minus(b);
+
+    assertEquals(Map.of(a, "a"), one);
+    assertEquals(Map.of(a, "a", b, "b"), two);
+    assertEquals(Map.of(a, "A", b, "b"), updated);
+    assertEquals(Map.of(a, "A"), removed);
+    assertSame(two, two.plus(b, "b"));
+    assertSame(two, two.minus(new Key(3, 7)));
+  }
+
+  @Test
+  public void readBackFromJson() throws Exception {
+    var mapper = JsonSupport.getObjectMapper();
+    var map = PersistentMap.<String, Long>empty();
+    for (long i = 0; i < 1000; i++) {
+      map = map.plus("tx-" + i, i);
+    }
+
+    var json = mapper.writeValueAsString(map);
+    var read = mapper.readValue(json, new TypeReference<PersistentMap<String, Long>>() {});
+
+    assertEquals(map, read);
+    assertEquals(mapper.readValue(json, new TypeReference<Map<String, Long>>() {}), read);
+  }
+
+  private static <K, V> void assertSameContent(Map<K, V> expected, PersistentMap<K, V> map) {
+    assertEquals(expected.size(), map.size());
+    assertEquals(expected.isEmpty(), map.isEmpty());
+    var iterated = new HashMap<K, V>();
+    for (var entry : map.entrySet()) {
+      assertNull(iterated.put(entry.getKey(), entry.getValue()), "iterated twice");
+    }
+    assertEquals(expected, iterated);
+    assertTrue(map.equals(expected) && expected.equals(map));
+    assertEquals(expected.hashCode(), map.hashCode());
+  }
+}
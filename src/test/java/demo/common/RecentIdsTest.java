@@ -0,0 +1,47 @@
+package demo.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.JsonSupport;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class RecentIdsTest {
+
+  @Test
+  public void evictTheOldestGeneration() {
+    var ids = RecentIds.empty(4).add("a").add("b").add("c").add("d").add("e");
+
+    assertFalse(ids.contains("a"));
+    assertFalse(ids.contains("b"));
+    assertTrue(ids.contains("c"));
+    assertTrue(ids.contains("e"));
+  }
+
+  @Test
+  public void readBackTheSameGenerationsFromJson() throws Exception {
+    var mapper = JsonSupport.getObjectMapper();
+    // a removal leaves the previous generation partial
+    var ids = RecentIds.empty(4).add("a").add("b").add("c").remove("a");
+
+    var read = mapper.readValue(mapper.writeValueAsString(ids), RecentIds.class);
+
+    assertEquals(ids, read);
+    assertEquals(ids.add("d").add("e"), read.add("d").add("e"));
+    assertFalse(read.add("d").add("e").contains("b"));
+  }
+
+  @Test
+  public void readSnapshotWithIdsList() throws Exception {
+    var json =
+        """
+        {"capacity": 4, "ids": ["a", "b", "c"]}
+        """;
+
+    var ids = JsonSupport.getObjectMapper().readValue(json, RecentIds.class);
+
+    assertEquals(RecentIds.of(4, List.of("a", "b", "c")), ids);
+  }
+}
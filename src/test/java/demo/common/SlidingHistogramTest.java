@@ -0,0 +1,35 @@
+package demo.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class SlidingHistogramTest {
+
+  private long now = 0;
+
+  private void advance(Duration duration) {
+    now += duration.toNanos();
+  }
+
+  @Test
+  public void forgetValuesOlderThanTheWindow() {
+    var histogram = new SlidingHistogram(Duration.ofMinutes(5), 5, () -> now);
+
+    histogram.record(Duration.ofSeconds(10));
+    assertEquals(1, histogram.latency().count());
+    advance(Duration.ofMinutes(2));
+    histogram.record(Duration.ofSeconds(1));
+    histogram.record(Duration.ofSeconds(1));
+    assertEquals(3, histogram.latency().count());
+    assertEquals(10_000, histogram.latency().max(), 10);
+
+    advance(Duration.ofMinutes(3));
+    assertEquals(2, histogram.latency().count());
+    assertEquals(1_000, histogram.latency().max(), 1);
+
+    advance(Duration.ofMinutes(10));
+    assertEquals(0, histogram.latency().count());
+  }
+}
@@ -0,0 +1,121 @@
+package demo.history;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import akka.javasdk.JsonSupport;
+import akka.javasdk.testkit.TestKitSupport;
+import demo.history.api.TransactionHistoryPage;
+import demo.history.application.TransactionRecordEntity;
+import demo.history.domain.TransactionRecord;
+import demo.wallet.domain.Wallet.Transaction.TransactionType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+/** Paging through and exporting the transaction history of a wallet. */
+public class TransactionHistoryIntegrationTest extends TestKitSupport {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final Instant AT = Instant.parse("2026-01-02T03:04:05Z");
+
+  @Test
+  public void pageThroughTransactionsInitiatedAtTheSameTime() {
+    // three transactions share an initiation time, and a page boundary falls among them
+    var records =
+        List.of(
+            record("history-1", "a", AT),
+            record("history-1", "b", AT.plusSeconds(1)),
+            record("history-1", "c", AT.plusSeconds(1)),
+            record("history-1", "d", AT.plusSeconds(1)),
+            record("history-1", "e", AT.plusSeconds(2)));
+    records.forEach(this::initiate);
+    awaitTrue(() -> export("history-1").size() == records.size());
+
+    var pages = new ArrayList<TransactionHistoryPage>();
+    var page = page("history-1", null);
+    pages.add(page);
+    while (page.nextCursor() != null) {
+      page = page("history-1", page.nextCursor());
+      pages.add(page);
+    }
+
+    assertEquals(3, pages.size());
+    assertEquals(
+        List.of("e", "d", "c", "b", "a"),
+        pages.stream()
+            .flatMap(p -> p.transactions().stream())
+            .map(TransactionRecord::transactionId)
+            .toList());
+  }
+
+  @Test
+  public void exportTransactionsOldestFirst() {
+    var records =
+        List.of(
+            record("history-2", "z", AT),
+            record("history-2", "x", AT.plusSeconds(1)),
+            record("history-2", "y", AT.plusSeconds(1)));
+    records.reversed().forEach(this::initiate);
+
+    awaitTrue(() -> export("history-2").size() == records.size());
+    assertEquals(records, export("history-2"));
+  }
+
+  @Test
+  public void rejectInvalidCursor() {
+    var response = httpClient.GET("/history/history-3?cursor=invalid").invoke();
+
+    assertFalse(response.status().isSuccess());
+  }
+
+  private static TransactionRecord record(String walletId, String transactionId, Instant at) {
+    return TransactionRecord.initiated(walletId, transactionId, TransactionType.DEPOSIT, 10, at);
+  }
+
+  private void initiate(TransactionRecord record) {
+    componentClient
+        .forKeyValueEntity(TransactionRecordEntity.idOf(record.walletId(), record.transactionId()))
+        .method(TransactionRecordEntity::initiated)
+        .invoke(record);
+  }
+
+  private TransactionHistoryPage page(String walletId, String cursor) {
+    var uri = "/history/" + walletId + "?limit=2" + (cursor == null ? "" : "&cursor=" + cursor);
+    return httpClient.GET(uri).responseBodyAs(TransactionHistoryPage.class).invoke().body();
+  }
+
+  private List<TransactionRecord> export(String walletId) {
+    var body = httpClient.GET("/history/" + walletId + "/export").invoke().body().utf8String();
+    return body.lines().filter(line -> !line.isEmpty()).map(this::parse).toList();
+  }
+
+  private TransactionRecord parse(String line) {
+    try {
+      return JsonSupport.getObjectMapper().readValue(line, TransactionRecord.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** The view is updated shortly after the records. */
+  private static void awaitTrue(BooleanSupplier condition) {
+    var deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new AssertionError("Condition not met within " + TIMEOUT);
+      }
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AssertionError(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package demo.history.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import akka.javasdk.http.HttpException;
+import demo.history.api.TransactionHistoryEndpoint.Cursor;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import org.junit.jupiter.api.Test;
+
+public class CursorTest {
+
+  private static final Instant AT = Instant.parse("2026-01-02T03:04:05.123456Z");
+
+  @Test
+  public void decodeWhatIsEncoded() {
+    var cursor = new Cursor(AT, "transaction-1");
+
+    assertEquals(cursor, Cursor.decode(cursor.encode()));
+  }
+
+  @Test
+  public void keepSeparatorsInTransactionIds() {
+    var cursor = new Cursor(AT, "batch|7|transaction-1");
+
+    assertEquals(cursor, Cursor.decode(cursor.encode()));
+  }
+
+  @Test
+  public void rejectInvalidCursors() {
+    assertThrows(HttpException.class, () -> Cursor.decode("not base64!"));
+    assertThrows(HttpException.class, () -> Cursor.decode(encode("no separator")));
+    assertThrows(HttpException.class, () -> Cursor.decode(encode("yesterday|transaction-1")));
+    assertThrows(HttpException.class, () -> Cursor.decode(""));
+  }
+
+  private static String encode(String value) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
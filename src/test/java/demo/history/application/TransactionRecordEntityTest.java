@@ -0,0 +1,67 @@
+package demo.history.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.testkit.KeyValueEntityTestKit;
+import demo.history.domain.TransactionRecord;
+import demo.history.domain.TransactionUpdate;
+import demo.wallet.domain.Wallet.Transaction.TransactionType;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+public class TransactionRecordEntityTest {
+
+  private static final Instant INITIATED = Instant.parse("2026-01-02T03:04:05Z");
+  private static final Instant EXECUTED = INITIATED.plusSeconds(1);
+
+  private final TransactionRecord record =
+      TransactionRecord.initiated("w1", "t1", TransactionType.DEPOSIT, 100, INITIATED);
+
+  @Test
+  public void ignoreRedeliveredInitiation() {
+    var testKit = KeyValueEntityTestKit.of(TransactionRecordEntity::new);
+    testKit.method(TransactionRecordEntity::initiated).invoke(record);
+    testKit
+        .method(TransactionRecordEntity::update)
+        .invoke(new TransactionUpdate(TransactionRecord.Status.EXECUTED, EXECUTED));
+
+    var redelivered = testKit.method(TransactionRecordEntity::initiated).invoke(record);
+
+    assertTrue(redelivered.isReply());
+    assertFalse(redelivered.stateWasUpdated());
+    assertEquals(record.executed(EXECUTED), testKit.getState());
+  }
+
+  @Test
+  public void ignoreRedeliveredUpdate() {
+    var testKit = KeyValueEntityTestKit.of(TransactionRecordEntity::new);
+    testKit.method(TransactionRecordEntity::initiated).invoke(record);
+    testKit
+        .method(TransactionRecordEntity::update)
+        .invoke(new TransactionUpdate(TransactionRecord.Status.EXECUTED, EXECUTED));
+
+    var redelivered =
+        testKit
+            .method(TransactionRecordEntity::update)
+            .invoke(
+                new TransactionUpdate(TransactionRecord.Status.EXECUTED, EXECUTED.plusSeconds(5)));
+
+    assertTrue(redelivered.isReply());
+    assertFalse(redelivered.stateWasUpdated());
+    assertEquals(record.executed(EXECUTED), testKit.getState());
+  }
+
+  @Test
+  public void rejectUpdateOfUnknownTransaction() {
+    var testKit = KeyValueEntityTestKit.of(TransactionRecordEntity::new);
+
+    var update =
+        testKit
+            .method(TransactionRecordEntity::update)
+            .invoke(new TransactionUpdate(TransactionRecord.Status.CANCELLED, EXECUTED));
+
+    assertTrue(update.isError());
+  }
+}
@@ -0,0 +1,87 @@
+package demo.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.testkit.TestKitSupport;
+import demo.stats.api.TransferVolume;
+import demo.stats.domain.WalletStats;
+import demo.transfer.api.TransferRequest;
+import demo.wallet.application.WalletEntity;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+/** The stats consumers and endpoint, from wallet and transfer events to the totals served. */
+public class StatsIntegrationTest extends TestKitSupport {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @Test
+  public void followWalletsAndTransfers() {
+    createWallet("stats-1", 100);
+    createWallet("stats-2", 50);
+    awaitTrue(() -> walletTotals().equals(new WalletStats.Totals(150, 0, 2)));
+
+    var response =
+        httpClient
+            .POST("/transfer/stats-transfer-1")
+            .withRequestBody(new TransferRequest(30, "stats-1", "stats-2"))
+            .invoke();
+    assertTrue(response.status().isSuccess());
+
+    // the transfer ends in the current minute, or the one before if it just turned
+    awaitTrue(() -> completedTransfers(2) == 1);
+    awaitTrue(() -> walletTotals().equals(new WalletStats.Totals(150, 0, 2)));
+    assertEquals(70, balance("stats-1"));
+  }
+
+  private WalletStats.Totals walletTotals() {
+    return httpClient
+        .GET("/stats/wallets")
+        .responseBodyAs(WalletStats.Totals.class)
+        .invoke()
+        .body();
+  }
+
+  private long completedTransfers(int minutes) {
+    return httpClient
+        .GET("/stats/transfers?minutes=" + minutes)
+        .responseBodyAsListOf(TransferVolume.class)
+        .invoke()
+        .body()
+        .stream()
+        .mapToLong(TransferVolume::completed)
+        .sum();
+  }
+
+  private void createWallet(String walletId, long balance) {
+    componentClient
+        .forEventSourcedEntity(walletId)
+        .method(WalletEntity::createWithBalance)
+        .invoke(balance);
+  }
+
+  private long balance(String walletId) {
+    return componentClient
+        .forEventSourcedEntity(walletId)
+        .method(WalletEntity::getBalance)
+        .invoke();
+  }
+
+  /** Stats are updated by consumers, shortly after the events. */
+  private static void awaitTrue(BooleanSupplier condition) {
+    var deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new AssertionError("Condition not met within " + TIMEOUT);
+      }
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AssertionError(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package demo.stats.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.testkit.EventSourcedTestKit;
+import demo.stats.domain.StatsTransaction;
+import demo.stats.domain.WalletStats;
+import demo.stats.domain.WalletStatsEvent;
+import org.junit.jupiter.api.Test;
+
+public class WalletStatsEntityTest {
+
+  @Test
+  public void persistOnlyTheEventOfEachUpdate() {
+    var testKit = EventSourcedTestKit.of(WalletStatsEntity::new);
+
+    testKit.method(WalletStatsEntity::walletCreated).invoke("w1");
+    var initiated =
+        testKit
+            .method(WalletStatsEntity::transactionInitiated)
+            .invoke(new StatsTransaction("w1", "d1", 100, false));
+
+    assertEquals(
+        new WalletStatsEvent.TransactionInitiated("w1", "d1", 100, false),
+        initiated.getNextEventOfType(WalletStatsEvent.TransactionInitiated.class));
+
+    testKit.method(WalletStatsEntity::transactionExecuted).invoke(StatsTransaction.of("w1", "d1"));
+    var totals = testKit.method(WalletStatsEntity::getTotals).invoke();
+    assertEquals(new WalletStats.Totals(100, 0, 1), totals.getReply());
+  }
+
+  @Test
+  public void persistNothingForARedeliveredUpdate() {
+    var testKit = EventSourcedTestKit.of(WalletStatsEntity::new);
+    testKit.method(WalletStatsEntity::walletCreated).invoke("w1");
+    testKit
+        .method(WalletStatsEntity::transactionInitiated)
+        .invoke(new StatsTransaction("w1", "t1", 30, true));
+    testKit.method(WalletStatsEntity::transactionCancelled).invoke(StatsTransaction.of("w1", "t1"));
+
+    assertFalse(testKit.method(WalletStatsEntity::walletCreated).invoke("w1").didPersistEvents());
+    var reinitiated =
+        testKit
+            .method(WalletStatsEntity::transactionInitiated)
+            .invoke(new StatsTransaction("w1", "t1", 30, true));
+    assertTrue(reinitiated.isReply());
+    assertFalse(reinitiated.didPersistEvents());
+
+    var totals = testKit.method(WalletStatsEntity::getTotals).invoke();
+    assertEquals(new WalletStats.Totals(0, 0, 1), totals.getReply());
+  }
+}
@@ -0,0 +1,41 @@
+package demo.stats.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class TransferStatsTest {
+
+  @Test
+  public void countCompletedAndCancelledTransfers() {
+    var stats =
+        TransferStats.empty()
+            .transferCompleted("t1")
+            .transferCompleted("t2")
+            .transferCancelled("t3");
+
+    assertEquals(new TransferStats.Counts(2, 1), stats.counts());
+    assertEquals(
+        new TransferStats.Counts(3, 2), stats.counts().plus(new TransferStats.Counts(1, 1)));
+  }
+
+  @Test
+  public void ignoreRedeliveredEvents() {
+    var stats = TransferStats.empty().transferCompleted("t1").transferCancelled("t2");
+
+    var redelivered = stats.transferCompleted("t1").transferCancelled("t2").transferCompleted("t2");
+
+    assertEquals(stats, redelivered);
+  }
+
+  @Test
+  public void applyEventsAsTheTransitions() {
+    var stats =
+        TransferStats.empty()
+            .applyEvent(new TransferStatsEvent.CompletedCounted("t1"))
+            .applyEvent(new TransferStatsEvent.CancelledCounted("t2"))
+            .applyEvent(new TransferStatsEvent.CompletedCounted("t1"));
+
+    assertEquals(TransferStats.empty().transferCompleted("t1").transferCancelled("t2"), stats);
+  }
+}
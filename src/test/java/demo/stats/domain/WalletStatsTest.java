@@ -0,0 +1,54 @@
+package demo.stats.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class WalletStatsTest {
+
+  @Test
+  public void followWalletBalancesAndReservedFunds() {
+    var stats =
+        WalletStats.empty()
+            .walletCreated("w1")
+            .walletCreated("w2")
+            .transactionInitiated("w1", "d1", 100, false)
+            .transactionExecuted("w1", "d1")
+            .transactionInitiated("w1", "t1", 30, true)
+            .transactionInitiated("w2", "t1", 30, false);
+
+    assertEquals(new WalletStats.Totals(70, 30, 2), stats.totals());
+
+    var completed = stats.transactionExecuted("w1", "t1").transactionExecuted("w2", "t1");
+    assertEquals(new WalletStats.Totals(100, 0, 2), completed.totals());
+
+    var cancelled = stats.transactionCancelled("w1", "t1").transactionCancelled("w2", "t1");
+    assertEquals(new WalletStats.Totals(100, 0, 2), cancelled.totals());
+  }
+
+  @Test
+  public void ignoreRedeliveredEvents() {
+    var stats =
+        WalletStats.empty()
+            .walletCreated("w1")
+            .transactionInitiated("w1", "d1", 100, false)
+            .transactionExecuted("w1", "d1")
+            .transactionInitiated("w1", "t1", 30, true)
+            .transactionCancelled("w1", "t1");
+
+    var redelivered =
+        stats
+            .walletCreated("w1")
+            // initiated again after being executed
+            .transactionInitiated("w1", "d1", 100, false)
+            .transactionExecuted("w1", "d1")
+            .transactionCancelled("w1", "d1")
+            // initiated again after being cancelled
+            .transactionInitiated("w1", "t1", 30, true)
+            .transactionCancelled("w1", "t1")
+            .transactionExecuted("w1", "t1");
+
+    assertEquals(new WalletStats.Totals(100, 0, 1), redelivered.totals());
+    assertEquals(stats, redelivered);
+  }
+}
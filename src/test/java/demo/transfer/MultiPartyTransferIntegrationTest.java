@@ -0,0 +1,108 @@
+package demo.transfer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.testkit.TestKitSupport;
+import demo.transfer.api.MultiPartyTransferRequest;
+import demo.transfer.api.MultiPartyTransferRequest.Leg;
+import demo.transfer.api.TransferRequest;
+import demo.transfer.domain.TransferState;
+import demo.transfer.domain.TransferStatus;
+import demo.wallet.application.WalletEntity;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class MultiPartyTransferIntegrationTest extends TestKitSupport {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @Test
+  public void splitOnePaymentOverManyPayees() throws Exception {
+    createWallet("split-payer", 100);
+    for (var payee : List.of("split-payee-1", "split-payee-2", "split-payee-3")) {
+      createWallet(payee, 0);
+    }
+    var request =
+        new MultiPartyTransferRequest(
+            List.of(new Leg("split-payer", 90)),
+            List.of(
+                new Leg("split-payee-1", 50),
+                new Leg("split-payee-2", 30),
+                new Leg("split-payee-3", 10)));
+
+    var response =
+        httpClient.POST("/transfer/split-1/multi-party").withRequestBody(request).invoke();
+    assertTrue(response.status().isSuccess());
+
+    var deadline = System.nanoTime() + TIMEOUT.toNanos();
+    var status = TransferState.Status.PENDING;
+    while (!status.isTerminated() && System.nanoTime() - deadline < 0) {
+      Thread.sleep(100);
+      status =
+          httpClient
+              .GET("/transfer/split-1")
+              .responseBodyAs(TransferStatus.class)
+              .invoke()
+              .body()
+              .status();
+    }
+
+    assertEquals(TransferState.Status.COMPLETED, status);
+    assertEquals(10, balance("split-payer"));
+    assertEquals(50, balance("split-payee-1"));
+    assertEquals(30, balance("split-payee-2"));
+    assertEquals(10, balance("split-payee-3"));
+  }
+
+  @Test
+  public void rejectUnbalancedTransfer() {
+    var request =
+        new MultiPartyTransferRequest(
+            List.of(new Leg("unbalanced-payer", 90)), List.of(new Leg("unbalanced-payee", 80)));
+
+    var succeeded =
+        httpClient
+            .POST("/transfer/unbalanced-1/multi-party")
+            .withRequestBody(request)
+            .invokeAsync()
+            .handle((response, error) -> error == null && response.status().isSuccess())
+            .toCompletableFuture()
+            .join();
+
+    assertFalse(succeeded);
+  }
+
+  @Test
+  public void rejectTransferFromAWalletToItself() {
+    createWallet("self-payer", 100);
+
+    var succeeded =
+        httpClient
+            .POST("/transfer/self-1")
+            .withRequestBody(new TransferRequest(10, "self-payer", "self-payer"))
+            .invokeAsync()
+            .handle((response, error) -> error == null && response.status().isSuccess())
+            .toCompletableFuture()
+            .join();
+
+    assertFalse(succeeded);
+    assertEquals(100, balance("self-payer"));
+  }
+
+  private void createWallet(String walletId, long balance) {
+    componentClient
+        .forEventSourcedEntity(walletId)
+        .method(WalletEntity::createWithBalance)
+        .invoke(balance);
+  }
+
+  private long balance(String walletId) {
+    return componentClient
+        .forEventSourcedEntity(walletId)
+        .method(WalletEntity::getBalance)
+        .invoke();
+  }
+}
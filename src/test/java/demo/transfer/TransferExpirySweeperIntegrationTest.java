@@ -0,0 +1,48 @@
+package demo.transfer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import demo.transfer.api.TransferId;
+import demo.transfer.application.TransferMediatorEntity;
+import demo.transfer.domain.Create;
+import demo.transfer.domain.TransferState;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+/** Transfers left pending are cancelled by the sweeper, through the deadline index view. */
+public class TransferExpirySweeperIntegrationTest extends TestKitSupport {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(20);
+
+  @Override
+  protected TestKit.Settings testKitSettings() {
+    return TestKit.Settings.DEFAULT.withAdditionalConfig(
+        """
+        demo.transfer.expiry.mode = sweeper
+        demo.transfer.expiry.sweeper.interval = 200ms
+        demo.transfer.timeout.two-party = 1s
+        """);
+  }
+
+  @Test
+  public void cancelTransfersLeftPending() throws Exception {
+    var transferId = TransferId.prefixForMediator("left-pending");
+    var mediator = componentClient.forEventSourcedEntity(transferId);
+    // no participant ever joins
+    mediator.method(TransferMediatorEntity::init).invoke(Create.of("payer", "payee"));
+    assertEquals(
+        TransferState.Status.PENDING,
+        mediator.method(TransferMediatorEntity::getState).invoke().status());
+
+    var deadline = System.nanoTime() + TIMEOUT.toNanos();
+    var status = TransferState.Status.PENDING;
+    while (status == TransferState.Status.PENDING && System.nanoTime() - deadline < 0) {
+      Thread.sleep(200);
+      status = mediator.method(TransferMediatorEntity::getState).invoke().status();
+    }
+
+    assertEquals(TransferState.Status.CANCELLED, status);
+  }
+}
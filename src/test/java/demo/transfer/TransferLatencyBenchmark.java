@@ -0,0 +1,170 @@
+package demo.transfer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import akka.Done;
+import akka.javasdk.testkit.TestKitSupport;
+import demo.transfer.api.TransferId;
+import demo.transfer.api.TransferRequest;
+import demo.transfer.application.TransferMediatorEntity;
+import demo.transfer.domain.Create;
+import demo.wallet.application.WalletEntity;
+import demo.wallet.domain.DepositCommand;
+import demo.wallet.domain.WithdrawCommand;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the latency of starting a mediator transfer with blocking calls made one after the other
+ * (how the endpoints used to do it) against {@code POST /transfer/{id}}, whose asynchronous
+ * pipeline issues withdraw and deposit concurrently once the transfer exists.
+ *
+ * <p>The blocking variant calls the components directly, so only the endpoint variant pays for the
+ * HTTP round trip: the difference measured understates the gain. Both variants keep {@link
+ * #CONCURRENCY} transfers in flight. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class TransferLatencyBenchmark extends TestKitSupport {
+
+  private static final int WALLETS = 20;
+  private static final int WARMUP_TRANSFERS = 200;
+  private static final int TRANSFERS = 2000;
+  private static final int CONCURRENCY = 50;
+
+  @Test
+  public void compareBlockingAndPipelinedTransfers() throws Exception {
+    for (int i = 0; i < WALLETS; i++) {
+      fund(walletId(i), 1_000_000);
+    }
+
+    run(WARMUP_TRANSFERS, this::blockingTransfer);
+    run(WARMUP_TRANSFERS, this::endpointTransfer);
+
+    var blocking = run(TRANSFERS, this::blockingTransfer);
+    var pipelined = run(TRANSFERS, this::endpointTransfer);
+
+    System.out.println("start transfer latency (ms)   p50      p99      max");
+    report("blocking, sequential", blocking);
+    report("endpoint, pipelined", pipelined);
+  }
+
+  private String walletId(int i) {
+    return "latency-wallet-" + i;
+  }
+
+  private void fund(String walletId, long amount) {
+    componentClient.forEventSourcedEntity(walletId).method(WalletEntity::create).invoke();
+    // not a mediator transaction id, so it is executed right away instead of joining a transfer
+    var txId = "funding-" + walletId;
+    componentClient
+        .forEventSourcedEntity(walletId)
+        .method(WalletEntity::deposit)
+        .invoke(new DepositCommand(amount, txId));
+    componentClient
+        .forEventSourcedEntity(walletId)
+        .method(WalletEntity::executeTransaction)
+        .invoke(txId);
+  }
+
+  private record Transfer(String transferId, String from, String to) {}
+
+  private Transfer nextTransfer(int i) {
+    return new Transfer(
+        UUID.randomUUID().toString(), walletId(i % WALLETS), walletId((i + 1) % WALLETS));
+  }
+
+  private CompletionStage<Done> blockingTransfer(Transfer transfer) {
+    var transferId = TransferId.prefixForMediator(transfer.transferId());
+    componentClient
+        .forEventSourcedEntity(transferId)
+        .method(TransferMediatorEntity::init)
+        .invoke(Create.of(transfer.from(), transfer.to()));
+    componentClient
+        .forEventSourcedEntity(transfer.from())
+        .method(WalletEntity::withdraw)
+        .invoke(new WithdrawCommand(1, transferId));
+    componentClient
+        .forEventSourcedEntity(transfer.to())
+        .method(WalletEntity::deposit)
+        .invoke(new DepositCommand(1, transferId));
+    return CompletableFuture.completedFuture(Done.getInstance());
+  }
+
+  private CompletionStage<Done> endpointTransfer(Transfer transfer) {
+    return httpClient
+        .POST("/transfer/" + transfer.transferId())
+        .withRequestBody(new TransferRequest(1, transfer.from(), transfer.to()))
+        .invokeAsync()
+        .thenApply(
+            response -> {
+              if (!response.httpResponse().status().isSuccess()) {
+                throw new IllegalStateException(
+                    "Transfer [" + transfer.transferId() + "] failed: " + response.httpResponse());
+              }
+              return Done.getInstance();
+            });
+  }
+
+  private interface TransferCall {
+    CompletionStage<Done> start(Transfer transfer);
+  }
+
+  /**
+   * Starts {@code count} transfers keeping {@link #CONCURRENCY} in flight. Each call is made from
+   * one of {@link #CONCURRENCY} threads, so the blocking variant is not starved of threads.
+   */
+  private Histogram run(int count, TransferCall call) throws Exception {
+    var histogram = new ConcurrentHistogram(3);
+    var inFlight = new Semaphore(CONCURRENCY);
+    var failures = new AtomicInteger();
+    var executor = Executors.newFixedThreadPool(CONCURRENCY);
+    var all = new ArrayList<CompletableFuture<Done>>(count);
+    try {
+      for (int i = 0; i < count; i++) {
+        inFlight.acquire();
+        var transfer = nextTransfer(i);
+        Supplier<CompletionStage<Done>> timed =
+            () -> {
+              var start = System.nanoTime();
+              CompletionStage<Done> started;
+              try {
+                started = call.start(transfer);
+              } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+              }
+              return started.whenComplete(
+                  (done, error) -> {
+                    histogram.recordValue((System.nanoTime() - start) / 1000);
+                    if (error != null) failures.incrementAndGet();
+                    inFlight.release();
+                  });
+            };
+        all.add(CompletableFuture.supplyAsync(timed, executor).thenCompose(s -> s));
+      }
+      CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).exceptionally(e -> null).get();
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(0, failures.get(), "failed transfers");
+    return histogram;
+  }
+
+  private void report(String name, Histogram histogram) {
+    System.out.printf(
+        "%-28s %8.2f %8.2f %8.2f%n",
+        name,
+        histogram.getValueAtPercentile(50) / 1000.0,
+        histogram.getValueAtPercentile(99) / 1000.0,
+        histogram.getMaxValue() / 1000.0);
+  }
+}
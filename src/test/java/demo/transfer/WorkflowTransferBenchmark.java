@@ -0,0 +1,123 @@
+package demo.transfer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import akka.javasdk.client.ComponentClient;
+import akka.javasdk.testkit.TestKit;
+import demo.transfer.api.TransferId;
+import demo.transfer.application.TransferWorkflow;
+import demo.transfer.domain.Transfer;
+import demo.transfer.domain.TransferWorkflowState;
+import demo.wallet.application.WalletEntity;
+import demo.wallet.domain.DepositCommand;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Load test of workflow transfers, from starting the workflow until it reports the transfer as
+ * completed, with the wallet calls of each step made one after the other and then concurrently
+ * ({@code demo.transfer.workflow.concurrent-wallet-calls}).
+ *
+ * <p>Each mode runs in its own service instance. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+public class WorkflowTransferBenchmark {
+
+  private static final int WALLETS = 20;
+  private static final int WARMUP_TRANSFERS = 100;
+  private static final int TRANSFERS = 1000;
+  private static final int CONCURRENCY = 32;
+
+  @Test
+  public void compareSequentialAndConcurrentWalletCalls() throws Exception {
+    var sequential = runWith(false);
+    var concurrent = runWith(true);
+
+    System.out.println("workflow transfer latency (ms)   p50      p99      max");
+    report("sequential wallet calls", sequential);
+    report("concurrent wallet calls", concurrent);
+  }
+
+  private Histogram runWith(boolean concurrentWalletCalls) throws Exception {
+    var settings =
+        TestKit.Settings.DEFAULT.withAdditionalConfig(
+            "demo.transfer.workflow.concurrent-wallet-calls = " + concurrentWalletCalls);
+    var testKit = new TestKit(settings).start();
+    var executor = Executors.newFixedThreadPool(CONCURRENCY);
+    try {
+      var client = testKit.getComponentClient();
+      for (int i = 0; i < WALLETS; i++) {
+        fund(client, walletId(i), 1_000_000);
+      }
+      run(client, executor, WARMUP_TRANSFERS);
+      return run(client, executor, TRANSFERS);
+    } finally {
+      executor.shutdown();
+      testKit.stop();
+    }
+  }
+
+  private String walletId(int i) {
+    return "workflow-wallet-" + i;
+  }
+
+  private void fund(ComponentClient client, String walletId, long amount) {
+    client.forEventSourcedEntity(walletId).method(WalletEntity::create).invoke();
+    var txId = "funding-" + walletId;
+    client
+        .forEventSourcedEntity(walletId)
+        .method(WalletEntity::deposit)
+        .invoke(new DepositCommand(amount, txId));
+    client.forEventSourcedEntity(walletId).method(WalletEntity::executeTransaction).invoke(txId);
+  }
+
+  private Histogram run(ComponentClient client, ExecutorService executor, int count)
+      throws Exception {
+    var histogram = new ConcurrentHistogram(3);
+    var transfers = new ArrayList<CompletableFuture<Void>>(count);
+    for (int i = 0; i < count; i++) {
+      var transfer = new Transfer(1, walletId(i % WALLETS), walletId((i + 1) % WALLETS));
+      transfers.add(
+          CompletableFuture.runAsync(
+              () -> histogram.recordValue(transferAndAwait(client, transfer)), executor));
+    }
+    CompletableFuture.allOf(transfers.toArray(CompletableFuture[]::new)).get();
+    assertEquals(count, histogram.getTotalCount());
+    return histogram;
+  }
+
+  /** Returns the time, in microseconds, until the workflow completed the transfer. */
+  private long transferAndAwait(ComponentClient client, Transfer transfer) {
+    var transferId = TransferId.prefixForWorkflow(UUID.randomUUID().toString());
+    var start = System.nanoTime();
+    client.forWorkflow(transferId).method(TransferWorkflow::startTransfer).invoke(transfer);
+
+    while (true) {
+      var state = client.forWorkflow(transferId).method(TransferWorkflow::getState).invoke();
+      if (state.status() == TransferWorkflowState.Status.COMPLETED) {
+        return (System.nanoTime() - start) / 1000;
+      } else if (state.status() == TransferWorkflowState.Status.CANCELLED) {
+        throw new IllegalStateException("Transfer [" + transferId + "] was cancelled");
+      }
+      // poll every millisecond, the resolution of this measurement
+      LockSupport.parkNanos(1_000_000);
+    }
+  }
+
+  private void report(String name, Histogram histogram) {
+    System.out.printf(
+        "%-31s %8.2f %8.2f %8.2f%n",
+        name,
+        histogram.getValueAtPercentile(50) / 1000.0,
+        histogram.getValueAtPercentile(99) / 1000.0,
+        histogram.getMaxValue() / 1000.0);
+  }
+}
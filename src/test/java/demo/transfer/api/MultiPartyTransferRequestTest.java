@@ -0,0 +1,91 @@
+package demo.transfer.api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import demo.transfer.api.MultiPartyTransferRequest.Leg;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+public class MultiPartyTransferRequestTest {
+
+  private static final int MAX_LEGS = 4;
+
+  private static Optional<String> validate(List<Leg> from, List<Leg> to) {
+    return new MultiPartyTransferRequest(from, to).validate(MAX_LEGS);
+  }
+
+  @Test
+  public void acceptOnePayerToManyPayees() {
+    var from = List.of(new Leg("payer", 100));
+    var to = List.of(new Leg("payee-1", 60), new Leg("payee-2", 30), new Leg("payee-3", 10));
+
+    assertTrue(validate(from, to).isEmpty());
+  }
+
+  @Test
+  public void rejectMissingPayersOrPayees() {
+    var legs = List.of(new Leg("w1", 10));
+
+    assertEquals(
+        Optional.of("A transfer needs at least one wallet to pay and one to receive"),
+        validate(List.of(), legs));
+    assertEquals(
+        Optional.of("A transfer needs at least one wallet to pay and one to receive"),
+        validate(legs, null));
+  }
+
+  @Test
+  public void rejectLegsWithoutWallet() {
+    assertEquals(
+        Optional.of("Every leg needs a wallet id"),
+        validate(List.of(new Leg(null, 10)), List.of(new Leg("w2", 10))));
+    assertEquals(
+        Optional.of("Every leg needs a wallet id"),
+        validate(List.of(new Leg("w1", 10)), Arrays.asList((Leg) null)));
+  }
+
+  @Test
+  public void rejectTooManyLegs() {
+    var from = List.of(new Leg("w1", 40));
+    var to = List.of(new Leg("w2", 10), new Leg("w3", 10), new Leg("w4", 10), new Leg("w5", 10));
+
+    assertEquals(Optional.of("A transfer can have at most 4 legs"), validate(from, to));
+  }
+
+  @Test
+  public void rejectAWalletTakingPartTwice() {
+    var from = List.of(new Leg("w1", 20));
+    var to = List.of(new Leg("w2", 10), new Leg("w1", 10));
+
+    assertEquals(Optional.of("A wallet can only take part once in a transfer"), validate(from, to));
+  }
+
+  @Test
+  public void rejectAmountsThatAreNotPositive() {
+    var from = List.of(new Leg("w1", 0));
+    var to = List.of(new Leg("w2", 10), new Leg("w3", -10));
+
+    assertEquals(Optional.of("Amounts must be positive"), validate(from, to));
+  }
+
+  @Test
+  public void rejectUnbalancedAmounts() {
+    var from = List.of(new Leg("w1", 100));
+    var to = List.of(new Leg("w2", 60), new Leg("w3", 30));
+
+    assertEquals(
+        Optional.of("Amounts paid [100] and received [90] must be the same"), validate(from, to));
+  }
+
+  @Test
+  public void rejectAmountsAddingUpPastTheLongRange() {
+    // would wrap around to the same sum on both sides
+    var from = List.of(new Leg("w1", Long.MAX_VALUE), new Leg("w2", 2));
+    var to = List.of(new Leg("w3", Long.MAX_VALUE), new Leg("w4", 2));
+
+    assertEquals(Optional.of("Amounts add up to more than a wallet can hold"), validate(from, to));
+  }
+}
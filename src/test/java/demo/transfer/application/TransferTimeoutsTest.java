@@ -0,0 +1,88 @@
+package demo.transfer.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import demo.common.Metrics;
+import demo.transfer.application.consumers.TransferMetricsConsumer;
+import demo.transfer.domain.TransferType;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TransferTimeoutsTest {
+
+  private final Metrics metrics = new Metrics();
+
+  private final Map<TransferType, Duration> configured =
+      Map.of(
+          TransferType.SINGLE_WALLET, Duration.ofSeconds(20),
+          TransferType.TWO_PARTY, Duration.ofSeconds(20),
+          TransferType.MULTI_PARTY, Duration.ofSeconds(30));
+
+  private TransferTimeouts adaptive() {
+    return adaptive(100.0, Duration.ofHours(1));
+  }
+
+  private TransferTimeouts adaptive(double maxGrowth, Duration refreshInterval) {
+    return new TransferTimeouts(
+        configured,
+        true,
+        3.0,
+        Duration.ofSeconds(5),
+        Duration.ofMinutes(2),
+        maxGrowth,
+        10,
+        refreshInterval,
+        metrics);
+  }
+
+  private void observe(TransferType type, Duration createdToInitiated, int times) {
+    for (int i = 0; i < times; i++) {
+      metrics.recordRecent(TransferMetricsConsumer.createdToInitiated(type), createdToInitiated);
+    }
+  }
+
+  @Test
+  public void useConfiguredTimeoutUntilEnoughTransfersWereSeen() {
+    observe(TransferType.TWO_PARTY, Duration.ofSeconds(10), 9);
+
+    assertEquals(Duration.ofSeconds(20), adaptive().timeoutOf(TransferType.TWO_PARTY));
+    assertEquals(Duration.ofSeconds(30), adaptive().timeoutOf(TransferType.MULTI_PARTY));
+  }
+
+  @Test
+  public void followObservedLatencyWithinBounds() {
+    observe(TransferType.TWO_PARTY, Duration.ofSeconds(10), 10);
+    observe(TransferType.SINGLE_WALLET, Duration.ofMillis(100), 10);
+    observe(TransferType.MULTI_PARTY, Duration.ofMinutes(5), 10);
+
+    var timeouts = adaptive();
+    // 3 times the p99, which the histogram holds to 3 significant digits
+    assertEquals(30, timeouts.timeoutOf(TransferType.TWO_PARTY).toSeconds());
+    assertEquals(Duration.ofSeconds(5), timeouts.timeoutOf(TransferType.SINGLE_WALLET));
+    assertEquals(Duration.ofMinutes(2), timeouts.timeoutOf(TransferType.MULTI_PARTY));
+  }
+
+  @Test
+  public void raiseTimeoutStepByStep() {
+    observe(TransferType.TWO_PARTY, Duration.ofSeconds(30), 10);
+
+    var timeouts = adaptive(2.0, Duration.ZERO);
+    // 3 times the p99 is 90s, reached by doubling the configured 20s at every refresh
+    assertEquals(40, timeouts.timeoutOf(TransferType.TWO_PARTY).toSeconds());
+    assertEquals(80, timeouts.timeoutOf(TransferType.TWO_PARTY).toSeconds());
+    assertEquals(90, timeouts.timeoutOf(TransferType.TWO_PARTY).toSeconds());
+  }
+
+  @Test
+  public void keepDerivedTimeoutUntilRefreshed() {
+    observe(TransferType.TWO_PARTY, Duration.ofSeconds(10), 10);
+    var timeouts = adaptive();
+    assertEquals(30, timeouts.timeoutOf(TransferType.TWO_PARTY).toSeconds());
+
+    observe(TransferType.TWO_PARTY, Duration.ofSeconds(20), 100);
+
+    assertEquals(30, timeouts.timeoutOf(TransferType.TWO_PARTY).toSeconds());
+    assertEquals(60, adaptive().timeoutOf(TransferType.TWO_PARTY).toSeconds());
+  }
+}
@@ -0,0 +1,74 @@
+package demo.transfer.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import akka.javasdk.JsonSupport;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class TransferEventMigrationTest {
+
+  private final TransferEventMigration migration = new TransferEventMigration();
+
+  @Test
+  public void readLegacyCreated() throws Exception {
+    var json =
+        migrate(
+            """
+            {"transferId":"t1","participants":[
+              {"id":"w1","joined":false,"executed":false},
+              {"id":"w2","joined":false,"executed":false}]}
+            """);
+
+    assertFalse(json.has("transferId"));
+    assertFalse(json.has("participants"));
+    assertEquals(
+        new TransferEvent.Created(List.of("w1", "w2")),
+        JsonSupport.getObjectMapper().treeToValue(json, TransferEvent.Created.class));
+  }
+
+  @Test
+  public void readLegacyParticipantEvents() throws Exception {
+    var json = migrate("{\"transferId\":\"t1\",\"participantId\":\"w1\"}");
+
+    assertFalse(json.has("transferId"));
+    assertEquals(
+        new TransferEvent.ParticipantJoined("w1"),
+        JsonSupport.getObjectMapper().treeToValue(json, TransferEvent.ParticipantJoined.class));
+    assertEquals(
+        new TransferEvent.ParticipantExecuted("w1"),
+        JsonSupport.getObjectMapper().treeToValue(json, TransferEvent.ParticipantExecuted.class));
+  }
+
+  @Test
+  public void readLegacyOutcomes() throws Exception {
+    var legacy = "{\"transferId\":\"t1\",\"participantsIds\":[\"w1\",\"w2\"]}";
+    var mapper = JsonSupport.getObjectMapper();
+
+    var initiated = migrate(legacy);
+    assertFalse(initiated.has("transferId"));
+    assertEquals(
+        new TransferEvent.Initiated(Set.of("w1", "w2")),
+        mapper.treeToValue(initiated, TransferEvent.Initiated.class));
+    assertEquals(
+        new TransferEvent.Completed(Set.of("w1", "w2")),
+        mapper.treeToValue(migrate(legacy), TransferEvent.Completed.class));
+    assertEquals(
+        new TransferEvent.Cancelled(Set.of("w1", "w2")),
+        mapper.treeToValue(migrate(legacy), TransferEvent.Cancelled.class));
+  }
+
+  @Test
+  public void leaveCurrentEventsUnchanged() throws Exception {
+    var current = JsonSupport.getObjectMapper().readTree("{\"participantIds\":[\"w1\",\"w2\"]}");
+
+    assertEquals(current.deepCopy(), migration.transform(1, current));
+  }
+
+  private JsonNode migrate(String legacy) throws Exception {
+    return migration.transform(0, JsonSupport.getObjectMapper().readTree(legacy));
+  }
+}
@@ -0,0 +1,74 @@
+package demo.transfer.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.JsonSupport;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class TransferStateTest {
+
+  @Test
+  public void leavePreviousStatesUnchanged() {
+    var created = TransferState.created("transfer", List.of("w1", "w2"));
+    var joined = created.participantJoined("w1");
+
+    assertFalse(created.hasJoined("w1"));
+    assertTrue(joined.hasJoined("w1"));
+    assertTrue(joined.isLastToJoin("w2"));
+    assertFalse(created.isLastToJoin("w2"));
+  }
+
+  @Test
+  public void rejectParticipantGivenTwice() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> TransferState.created("transfer", List.of("w1", "w2", "w1")));
+  }
+
+  @Test
+  public void readBackFromJson() throws Exception {
+    var mapper = JsonSupport.getObjectMapper();
+    var state =
+        TransferState.created("transfer", List.of("w1", "w2", "w3"))
+            .participantJoined("w1")
+            .participantJoined("w3")
+            .participantExecuted("w3")
+            .initiate();
+
+    var read = mapper.readValue(mapper.writeValueAsString(state), TransferState.class);
+
+    assertEquals(state.participants(), read.participants());
+    assertEquals(TransferState.Status.INITIATED, read.status());
+    assertEquals(2, read.joined());
+    assertEquals(1, read.executed());
+  }
+
+  @Test
+  public void readSnapshotWithParticipantsMap() throws Exception {
+    var json =
+        """
+        {
+          "transferId": "transfer",
+          "participants": {
+            "w1": {"id": "w1", "joined": true, "executed": true},
+            "w2": {"id": "w2", "joined": true, "executed": false}
+          },
+          "status": "INITIATED",
+          "joined": 2,
+          "executed": 1
+        }
+        """;
+
+    var state = JsonSupport.getObjectMapper().readValue(json, TransferState.class);
+
+    assertEquals(
+        List.of(new Participant("w1", true, true), new Participant("w2", true, false)),
+        state.participants());
+    assertTrue(state.isInProgress());
+    assertTrue(state.isLastToExecute("w2"));
+  }
+}
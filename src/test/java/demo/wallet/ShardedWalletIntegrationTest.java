@@ -0,0 +1,179 @@
+package demo.wallet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.http.RequestBuilder;
+import akka.javasdk.testkit.TestKit;
+import akka.javasdk.testkit.TestKitSupport;
+import demo.transfer.api.TransferId;
+import demo.transfer.api.TransferRequest;
+import demo.wallet.api.DepositRequest;
+import demo.wallet.api.WalletBalance;
+import demo.wallet.api.WithdrawRequest;
+import demo.wallet.application.WalletEntity;
+import demo.wallet.domain.ShardedWallet;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+public class ShardedWalletIntegrationTest extends TestKitSupport {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+  @Override
+  protected TestKit.Settings testKitSettings() {
+    return TestKit.Settings.DEFAULT.withAdditionalConfig("demo.wallet.sharding.enabled = true");
+  }
+
+  @Test
+  public void takeAWalletIdEitherPlainOrSharded() {
+    assertTrue(succeeds(httpClient.POST("/wallet/plain-1/create")));
+    assertFalse(succeeds(httpClient.POST("/wallet/plain-1/create?shards=4")));
+
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-1/create?shards=4")));
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-1/create?shards=4")));
+    assertFalse(succeeds(httpClient.POST("/wallet/sharded-1/create")));
+    assertFalse(succeeds(httpClient.POST("/wallet/sharded-1/create?shards=2")));
+  }
+
+  @Test
+  public void keepSubWalletIdsForSubWallets() {
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-5/create?shards=2")));
+
+    assertFalse(succeeds(httpClient.POST("/wallet/sharded-5%230/create")));
+    assertFalse(succeeds(httpClient.POST("/wallet/other%231/create")));
+  }
+
+  @Test
+  public void routeTransfersToTheSubWalletOfTheirTransaction() {
+    var layout = new ShardedWallet("sharded-6", 4);
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-6/create?shards=4")));
+    componentClient
+        .forEventSourcedEntity("payer-6")
+        .method(WalletEntity::createWithBalance)
+        .invoke(100L);
+
+    var transfer = new TransferRequest(40, "payer-6", "sharded-6");
+    assertTrue(succeeds(httpClient.POST("/transfer/to-sharded-6").withRequestBody(transfer)));
+
+    var shardId = layout.shardFor(TransferId.prefixForMediator("to-sharded-6"));
+    awaitTrue(() -> shardBalances(layout).get(shardId) == 40);
+    assertEquals(40, balance("sharded-6"));
+
+    // and not the other way round
+    var back = new TransferRequest(10, "sharded-6", "payer-6");
+    assertFalse(succeeds(httpClient.POST("/transfer/from-sharded-6").withRequestBody(back)));
+  }
+
+  @Test
+  public void routeDepositsToTheSubWalletOfTheirTransaction() {
+    var layout = new ShardedWallet("sharded-2", 4);
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-2/create?shards=4")));
+
+    var expected = new HashMap<String, Long>();
+    layout.shardIds().forEach(shardId -> expected.put(shardId, 0L));
+    for (int i = 0; i < 8; i++) {
+      var transactionId = "deposit-" + i;
+      deposit("sharded-2", 10 + i, transactionId);
+      expected.merge(
+          layout.shardFor(TransferId.prefixForMediator(transactionId)), 10L + i, Long::sum);
+    }
+
+    awaitTrue(() -> shardBalances(layout).equals(expected));
+    assertEquals(108, balance("sharded-2"));
+  }
+
+  @Test
+  public void withdrawOnceWhenASplitWithdrawalIsRepeated() {
+    var layout = new ShardedWallet("sharded-3", 3);
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-3/create?shards=3")));
+    // one deposit to each sub-wallet
+    var depositIds = new HashMap<String, String>();
+    for (int i = 0; depositIds.size() < 3; i++) {
+      depositIds.putIfAbsent(layout.shardFor(TransferId.prefixForMediator("d" + i)), "d" + i);
+    }
+    depositIds.values().forEach(transactionId -> deposit("sharded-3", 100, transactionId));
+    awaitTrue(() -> balance("sharded-3") == 300);
+
+    // more than any sub-wallet holds, less than what two hold
+    var withdraw = new WithdrawRequest(150, "split-withdraw");
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-3/withdraw").withRequestBody(withdraw)));
+    assertEquals(150, balance("sharded-3"));
+
+    // the repeat either finds the transfer pending and reuses its legs, or finds it already in
+    // progress and is rejected, but never withdraws again
+    succeeds(httpClient.POST("/wallet/sharded-3/withdraw").withRequestBody(withdraw));
+    assertEquals(150, balance("sharded-3"));
+    awaitTrue(() -> shardBalances(layout).values().stream().filter(b -> b == 100).count() == 1);
+    assertEquals(150, balance("sharded-3"));
+  }
+
+  @Test
+  public void evenOutSubWalletsWhenRebalanced() {
+    var layout = new ShardedWallet("sharded-4", 3);
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-4/create?shards=3")));
+    for (int i = 0; i < 6; i++) {
+      deposit("sharded-4", 10 * (i + 1), "deposit-" + i);
+    }
+    awaitTrue(() -> balance("sharded-4") == 210);
+
+    assertTrue(succeeds(httpClient.POST("/wallet/sharded-4/rebalance")));
+
+    awaitTrue(() -> shardBalances(layout).values().stream().allMatch(b -> b == 70));
+  }
+
+  private static boolean succeeds(RequestBuilder<?> request) {
+    return request
+        .invokeAsync()
+        .handle((response, error) -> error == null && response.status().isSuccess())
+        .toCompletableFuture()
+        .join();
+  }
+
+  private void deposit(String walletId, long amount, String transactionId) {
+    assertTrue(
+        succeeds(
+            httpClient
+                .POST("/wallet/" + walletId + "/deposit")
+                .withRequestBody(new DepositRequest(amount, transactionId))));
+  }
+
+  private long balance(String walletId) {
+    return httpClient
+        .GET("/wallet/" + walletId + "/balance")
+        .responseBodyAs(WalletBalance.class)
+        .invoke()
+        .body()
+        .balance();
+  }
+
+  private Map<String, Long> shardBalances(ShardedWallet layout) {
+    var balances = new HashMap<String, Long>();
+    for (var shardId : layout.shardIds()) {
+      balances.put(
+          shardId,
+          componentClient.forEventSourcedEntity(shardId).method(WalletEntity::getBalance).invoke());
+    }
+    return balances;
+  }
+
+  /** Deposits and withdrawals reach the balance once their transfer completes. */
+  private static void awaitTrue(BooleanSupplier condition) {
+    var deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while (!condition.getAsBoolean()) {
+      if (System.nanoTime() - deadline > 0) {
+        throw new AssertionError("Condition not met within " + TIMEOUT);
+      }
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AssertionError(e);
+      }
+    }
+  }
+}
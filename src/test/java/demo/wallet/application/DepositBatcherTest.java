@@ -0,0 +1,110 @@
+package demo.wallet.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import demo.wallet.domain.DepositCommand;
+import demo.wallet.domain.Wallet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.junit.jupiter.api.Test;
+
+public class DepositBatcherTest {
+
+  private record Call(
+      String walletId, List<DepositCommand> deposits, CompletableFuture<Wallet> reply) {}
+
+  private final List<Call> calls = new ArrayList<>();
+  private final List<DepositCommand> singleDeposits = new ArrayList<>();
+  private boolean failToSend = false;
+
+  private CompletionStage<Wallet> send(String walletId, List<DepositCommand> deposits) {
+    if (failToSend) {
+      throw new IllegalStateException("not sent");
+    }
+    var call = new Call(walletId, deposits, new CompletableFuture<>());
+    calls.add(call);
+    return call.reply();
+  }
+
+  private CompletionStage<Wallet> sendOne(String walletId, DepositCommand deposit) {
+    singleDeposits.add(deposit);
+    return CompletableFuture.completedFuture(new Wallet(deposit.amount()));
+  }
+
+  private DepositBatcher batcher(boolean enabled) {
+    return new DepositBatcher(enabled, 2, this::sendOne, this::send);
+  }
+
+  private DepositCommand deposit(String txId) {
+    return new DepositCommand(10, txId);
+  }
+
+  @Test
+  public void coalesceDepositsArrivingWhileACallIsInFlight() {
+    var batcher = batcher(true);
+
+    var first = batcher.deposit("w1", deposit("tx1"));
+    var second = batcher.deposit("w1", deposit("tx2"));
+    var third = batcher.deposit("w1", deposit("tx3"));
+    var fourth = batcher.deposit("w1", deposit("tx4"));
+    var otherWallet = batcher.deposit("w2", deposit("tx5"));
+    assertEquals(2, calls.size());
+    assertEquals(List.of(deposit("tx1")), calls.get(0).deposits());
+    assertEquals("w2", calls.get(1).walletId());
+
+    calls.get(0).reply().complete(new Wallet(10));
+    assertEquals(10, first.toCompletableFuture().join().balance());
+    assertEquals(List.of(deposit("tx2"), deposit("tx3")), calls.get(2).deposits());
+
+    calls.get(2).reply().complete(new Wallet(30));
+    assertEquals(30, second.toCompletableFuture().join().balance());
+    assertEquals(30, third.toCompletableFuture().join().balance());
+    assertEquals(List.of(deposit("tx4")), calls.get(3).deposits());
+
+    calls.get(3).reply().completeExceptionally(new RuntimeException("failed"));
+    assertTrue(fourth.toCompletableFuture().isCompletedExceptionally());
+
+    // nothing in flight anymore: the next deposit is sent right away
+    batcher.deposit("w1", deposit("tx6"));
+    assertEquals(5, calls.size());
+    assertFalse(otherWallet.toCompletableFuture().isDone());
+  }
+
+  @Test
+  public void failDepositsWhoseCallCouldNotBeSent() {
+    var batcher = batcher(true);
+
+    var first = batcher.deposit("w1", deposit("tx1"));
+    var second = batcher.deposit("w1", deposit("tx2"));
+    var third = batcher.deposit("w1", deposit("tx3"));
+    failToSend = true;
+    calls.get(0).reply().complete(new Wallet(10));
+
+    assertEquals(10, first.toCompletableFuture().join().balance());
+    assertTrue(second.toCompletableFuture().isCompletedExceptionally());
+    assertTrue(third.toCompletableFuture().isCompletedExceptionally());
+    assertTrue(
+        batcher.deposit("w1", deposit("tx4")).toCompletableFuture().isCompletedExceptionally());
+
+    // the failures left nothing waiting: the next deposit is sent right away
+    failToSend = false;
+    batcher.deposit("w1", deposit("tx5"));
+    assertEquals(2, calls.size());
+    assertEquals(List.of(deposit("tx5")), calls.get(1).deposits());
+  }
+
+  @Test
+  public void sendEveryDepositOnItsOwnWhenDisabled() {
+    var batcher = batcher(false);
+
+    batcher.deposit("w1", deposit("tx1"));
+    batcher.deposit("w1", deposit("tx2"));
+
+    assertEquals(List.of(deposit("tx1"), deposit("tx2")), singleDeposits);
+    assertTrue(calls.isEmpty());
+  }
+}
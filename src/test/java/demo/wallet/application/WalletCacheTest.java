@@ -0,0 +1,73 @@
+package demo.wallet.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import demo.wallet.domain.Wallet;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class WalletCacheTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private Wallet load(long balance) {
+    loads.incrementAndGet();
+    return new Wallet(balance);
+  }
+
+  @Test
+  public void serveCachedWalletUntilInvalidated() {
+    var cache = new WalletCache(true, 10, Duration.ofMinutes(1));
+
+    assertEquals(10, cache.get("w1", () -> load(10)).balance());
+    assertEquals(10, cache.get("w1", () -> load(20)).balance());
+    assertEquals(1, loads.get());
+
+    cache.invalidate("w1");
+    assertEquals(20, cache.get("w1", () -> load(20)).balance());
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void dropWalletInvalidatedWhileLoading() {
+    var cache = new WalletCache(true, 10, Duration.ofMinutes(1));
+
+    var loaded =
+        cache.get(
+            "w1",
+            () -> {
+              // an event arrives after the state was read
+              var wallet = load(10);
+              cache.invalidate("w1");
+              return wallet;
+            });
+    assertEquals(10, loaded.balance());
+
+    assertEquals(20, cache.get("w1", () -> load(20)).balance());
+    assertEquals(20, cache.get("w1", () -> load(30)).balance());
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void evictLeastRecentlyReadWallet() {
+    var cache = new WalletCache(true, 2, Duration.ofMinutes(1));
+    cache.get("w1", () -> load(1));
+    cache.get("w2", () -> load(2));
+    cache.get("w1", () -> load(1));
+    cache.get("w3", () -> load(3));
+
+    cache.get("w1", () -> load(1));
+    assertEquals(3, loads.get());
+    cache.get("w2", () -> load(2));
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  public void reloadExpiredWallet() {
+    var cache = new WalletCache(true, 10, Duration.ZERO);
+    cache.get("w1", () -> load(1));
+    cache.get("w1", () -> load(1));
+    assertEquals(2, loads.get());
+  }
+}
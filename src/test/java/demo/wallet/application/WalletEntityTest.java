@@ -0,0 +1,76 @@
+package demo.wallet.application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.testkit.EventSourcedTestKit;
+import demo.wallet.domain.DepositBatch;
+import demo.wallet.domain.DepositCommand;
+import demo.wallet.domain.WalletEvent;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class WalletEntityTest {
+
+  @Test
+  public void initiateTheNewDepositsOfABatch() {
+    var testKit = EventSourcedTestKit.of(WalletEntity::new);
+    testKit.method(WalletEntity::createWithBalance).invoke(100L);
+    // one pending, one executed and waiting for its transfer to complete
+    testKit.method(WalletEntity::deposit).invoke(new DepositCommand(10, "pending"));
+    testKit.method(WalletEntity::deposit).invoke(new DepositCommand(20, "executed"));
+    testKit.method(WalletEntity::executeTransaction).invoke("executed");
+
+    var batch =
+        testKit
+            .method(WalletEntity::depositBatch)
+            .invoke(
+                new DepositBatch(
+                    List.of(
+                        new DepositCommand(10, "pending"),
+                        new DepositCommand(1, "t1"),
+                        new DepositCommand(20, "executed"),
+                        new DepositCommand(2, "t2"),
+                        new DepositCommand(1, "t1"))));
+
+    assertEquals(
+        List.of(
+            new WalletEvent.DepositInitiated(1, "t1"), new WalletEvent.DepositInitiated(2, "t2")),
+        batch.getAllEvents());
+    assertTrue(batch.getReply().isPendingTransaction("t1"));
+    assertTrue(batch.getReply().isPendingTransaction("t2"));
+    assertEquals(120, batch.getReply().balance());
+  }
+
+  @Test
+  public void persistNothingForABatchAlreadySeen() {
+    var testKit = EventSourcedTestKit.of(WalletEntity::new);
+    testKit.method(WalletEntity::createWithBalance).invoke(100L);
+    testKit
+        .method(WalletEntity::depositBatch)
+        .invoke(new DepositBatch(List.of(new DepositCommand(1, "t1"))));
+
+    var redelivered =
+        testKit
+            .method(WalletEntity::depositBatch)
+            .invoke(
+                new DepositBatch(
+                    List.of(new DepositCommand(1, "t1"), new DepositCommand(1, "t1"))));
+
+    assertTrue(redelivered.isReply());
+    assertFalse(redelivered.didPersistEvents());
+  }
+
+  @Test
+  public void rejectBatchToUnknownWallet() {
+    var testKit = EventSourcedTestKit.of(WalletEntity::new);
+
+    var batch =
+        testKit
+            .method(WalletEntity::depositBatch)
+            .invoke(new DepositBatch(List.of(new DepositCommand(1, "t1"))));
+
+    assertTrue(batch.isError());
+  }
+}
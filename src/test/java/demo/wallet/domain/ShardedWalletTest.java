@@ -0,0 +1,42 @@
+package demo.wallet.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class ShardedWalletTest {
+
+  private final ShardedWallet wallet = new ShardedWallet("w", 3);
+
+  @Test
+  public void withdrawFromTheSubWalletOfTheTransactionWhenItHoldsEnough() {
+    var shard = wallet.shardFor("tx");
+    var balances = Map.of("w#0", 100L, "w#1", 100L, "w#2", 100L);
+
+    assertEquals(
+        List.of(new ShardedWallet.Leg(shard, 80)), wallet.planWithdraw(balances, "tx", 80));
+  }
+
+  @Test
+  public void splitWithdrawalLargerThanOneSubWallet() {
+    var balances = Map.of("w#0", 50L, "w#1", 120L, "w#2", 30L);
+
+    var legs = wallet.planWithdraw(balances, "tx", 160);
+    assertEquals(
+        List.of(new ShardedWallet.Leg("w#1", 120), new ShardedWallet.Leg("w#0", 40)), legs);
+    assertTrue(wallet.planWithdraw(balances, "tx", 201).isEmpty());
+  }
+
+  @Test
+  public void rebalanceToTheAverageBalance() {
+    var balances = Map.of("w#0", 300L, "w#1", 10L, "w#2", 0L);
+
+    assertEquals(
+        List.of(
+            new ShardedWallet.Move("w#0", "w#1", 93), new ShardedWallet.Move("w#0", "w#2", 103)),
+        wallet.planRebalance(balances));
+  }
+}
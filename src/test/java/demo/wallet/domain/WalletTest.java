@@ -0,0 +1,126 @@
+package demo.wallet.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import akka.javasdk.JsonSupport;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Exercises the wallet transitions. Surefire runs with assertions enabled, so every intermediate
+ * state also checks its running totals against the pending transactions.
+ */
+public class WalletTest {
+
+  @Test
+  public void keepReservedFundsAndPendingDepositsUpToDate() {
+    var wallet =
+        new Wallet(1000)
+            .addPendingWithdraw(100, "w1")
+            .addPendingWithdraw(50, "w2")
+            .addPendingDeposit(30, "d1");
+
+    assertEquals(850, wallet.balance());
+    assertEquals(150, wallet.reservedFunds());
+    assertEquals(30, wallet.pendingDeposits());
+
+    wallet = wallet.cancelTransaction("w2").executeWithdraw(100, "w1").executeDeposit(30, "d1");
+
+    assertEquals(930, wallet.balance());
+    assertEquals(0, wallet.reservedFunds());
+    assertEquals(0, wallet.pendingDeposits());
+    assertTrue(wallet.alreadySeen("w1"));
+    assertTrue(wallet.alreadySeen("d1"));
+    assertFalse(wallet.alreadySeen("w2"));
+  }
+
+  @Test
+  public void keepOtherTransactionsWhenBalanceChanges() {
+    var wallet =
+        new Wallet(100)
+            .addPendingDeposit(10, "d1")
+            .addPendingWithdraw(20, "w1")
+            .cancelTransaction("w1");
+
+    assertTrue(wallet.isPendingTransaction("d1"));
+    assertEquals(10, wallet.pendingDeposits());
+  }
+
+  @Test
+  public void deriveTotalsForStateWithoutThem() {
+    var pending =
+        new Wallet(0)
+            .addPendingWithdraw(40, "w1")
+            .addPendingDeposit(25, "d1")
+            .pendingTransactions();
+
+    var legacy = new Wallet(60, ExecutedTransactions.empty(), pending, 0, 0);
+
+    assertEquals(40, legacy.reservedFunds());
+    assertEquals(25, legacy.pendingDeposits());
+  }
+
+  @Test
+  public void rememberExecutedTransactionsUntilCompleted() {
+    var wallet = new Wallet(0);
+    for (int i = 0; i < 2000; i++) {
+      wallet = wallet.addPendingDeposit(1, "d" + i).executeDeposit(1, "d" + i);
+    }
+
+    // however many executions follow, until its transfer completes
+    assertTrue(wallet.alreadySeen("d0"));
+    assertEquals(2000, wallet.executedTransactions().size());
+
+    wallet = wallet.completeTransaction("d0");
+    assertFalse(wallet.alreadySeen("d0"));
+    assertTrue(wallet.alreadySeen("d1"));
+  }
+
+  @Test
+  public void readBackExecutedTransactionsFromJson() throws Exception {
+    var mapper = JsonSupport.getObjectMapper();
+    // completing a transaction forgets its id
+    var wallet =
+        new Wallet(100)
+            .addPendingDeposit(10, "d1")
+            .executeDeposit(10, "d1")
+            .addPendingDeposit(20, "d2")
+            .executeDeposit(20, "d2")
+            .completeTransaction("d1");
+
+    var read = mapper.readValue(mapper.writeValueAsString(wallet), Wallet.class);
+
+    assertEquals(wallet, read);
+    // the same plain array as before ExecutedTransactions
+    var json = mapper.readTree(mapper.writeValueAsString(wallet));
+    assertEquals("[\"d2\"]", json.get("executedTransactions").toString());
+    assertFalse(mapper.writeValueAsString(new Wallet(100)).contains("executedTransactions"));
+  }
+
+  @Test
+  public void readSnapshotWithExecutedTransactionsList() throws Exception {
+    var json =
+        """
+        {"balance": 100, "executedTransactions": ["d1", "d2"]}
+        """;
+
+    var wallet = JsonSupport.getObjectMapper().readValue(json, Wallet.class);
+
+    assertTrue(wallet.alreadySeen("d1"));
+    assertTrue(wallet.alreadySeen("d2"));
+  }
+
+  @Test
+  public void readSnapshotWithExecutedTransactionsGenerations() throws Exception {
+    var json =
+        """
+        {"balance": 100, "executedTransactions": {"previous": ["d1"], "current": ["d2"]}}
+        """;
+
+    var wallet = JsonSupport.getObjectMapper().readValue(json, Wallet.class);
+
+    assertEquals(List.of("d1", "d2"), wallet.executedTransactions().toList());
+  }
+}